@@ -19,17 +19,25 @@ package jetbrains.buildServer.investigationsAutoAssigner;
 import com.intellij.openapi.diagnostic.Logger;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import jetbrains.buildServer.BuildProblemData;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.investigationsAutoAssigner.persistent.PreviousResponsibleIndex;
 import jetbrains.buildServer.investigationsAutoAssigner.persistent.StatisticsReporter;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.DelayedAssignmentsProcessor;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.FailedTestAndBuildProblemsProcessor;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ActiveInvestigationsIndex;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.EmailReporter;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemTextExtractor;
+import jetbrains.buildServer.messages.BuildMessage1;
+import jetbrains.buildServer.messages.DefaultMessagesInfo;
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.problems.BuildProblemInfo;
@@ -48,6 +56,9 @@ public class FailedTestAndBuildProblemsDispatcher {
   private final FailedTestAndBuildProblemsProcessor myProcessor;
   private final DelayedAssignmentsProcessor myDelayedAssignmentsProcessor;
   @NotNull private final EmailReporter myEmailReporter;
+  @NotNull private final ProblemTextExtractor myProblemTextExtractor;
+  @NotNull private final PreviousResponsibleIndex myPreviousResponsibleIndex;
+  @NotNull private final ActiveInvestigationsIndex myActiveInvestigationsIndex;
   private StatisticsReporter myStatisticsReporter;
   @NotNull
   private final ConcurrentHashMap<Long, FailedBuildInfo> myFailedBuilds = new ConcurrentHashMap<>();
@@ -55,18 +66,38 @@ public class FailedTestAndBuildProblemsDispatcher {
   private final ConcurrentHashMap<String, FailedBuildInfo> myDelayedAssignments = new ConcurrentHashMap<>();
   @NotNull
   private final ScheduledExecutorService myExecutor;
+  /*
+    Builds are processed concurrently, but every build is handled by one worker at a time.
+    Every build has its own lock, so a slow build never holds back the others. The lock is dropped together
+    with the build, a worker which still has the dropped lock finds the build removed and does nothing.
+   */
+  @NotNull
+  private final ConcurrentHashMap<Long, ReentrantLock> myBuildLocks = new ConcurrentHashMap<>();
+  @NotNull
+  private final Set<Long> myScheduledBuilds = ConcurrentHashMap.newKeySet();
+  private final boolean myEventDrivenProcessingEnabled;
+  private final int myQuietPeriodInSeconds;
 
   public FailedTestAndBuildProblemsDispatcher(@NotNull final BuildServerListenerEventDispatcher buildServerListenerEventDispatcher,
                                               @NotNull final FailedTestAndBuildProblemsProcessor processor,
                                               @NotNull final DelayedAssignmentsProcessor delayedAssignmentsProcessor,
                                               @NotNull final EmailReporter emailReporter,
-                                              @NotNull final StatisticsReporter statisticsReporter) {
+                                              @NotNull final StatisticsReporter statisticsReporter,
+                                              @NotNull final ProblemTextExtractor problemTextExtractor,
+                                              @NotNull final PreviousResponsibleIndex previousResponsibleIndex,
+                                              @NotNull final ActiveInvestigationsIndex activeInvestigationsIndex) {
     myProcessor = processor;
     myDelayedAssignmentsProcessor = delayedAssignmentsProcessor;
     myEmailReporter = emailReporter;
     myStatisticsReporter = statisticsReporter;
-    myExecutor = ExecutorsFactory.newFixedScheduledDaemonExecutor(Constants.BUILD_FEATURE_TYPE, 1);
-    myExecutor.scheduleWithFixedDelay(this::processBrokenBuildsOneThread,
+    myProblemTextExtractor = problemTextExtractor;
+    myPreviousResponsibleIndex = previousResponsibleIndex;
+    myActiveInvestigationsIndex = activeInvestigationsIndex;
+    myEventDrivenProcessingEnabled = CustomParameters.isEventDrivenProcessingEnabled();
+    myQuietPeriodInSeconds = CustomParameters.getQuietPeriodInSeconds();
+    myExecutor = ExecutorsFactory.newFixedScheduledDaemonExecutor(Constants.BUILD_FEATURE_TYPE,
+                                                                  CustomParameters.getProcessingThreadsNumber());
+    myExecutor.scheduleWithFixedDelay(this::processBrokenBuilds,
                                       CustomParameters.getProcessingDelayInSeconds(),
                                       CustomParameters.getProcessingDelayInSeconds(),
                                       TimeUnit.SECONDS);
@@ -76,22 +107,41 @@ public class FailedTestAndBuildProblemsDispatcher {
       public void buildProblemsChanged(@NotNull SBuild sBuild,
                                        @NotNull List<BuildProblemData> before,
                                        @NotNull List<BuildProblemData> after) {
-        if (myFailedBuilds.containsKey(sBuild.getBuildId()) || shouldIgnore(sBuild) || !(sBuild instanceof BuildEx)) {
+        @Nullable
+        FailedBuildInfo failedBuildInfo = registerFailedBuild(sBuild);
+        if (failedBuildInfo != null) {
+          scheduleProcessing(failedBuildInfo);
+        }
+      }
+
+      @Override
+      public void messageReceived(@NotNull final SRunningBuild build, @NotNull final BuildMessage1 message) {
+        if (!myEventDrivenProcessingEnabled || !DefaultMessagesInfo.MSG_TEST_FAILURE.equals(message.getTypeId())) {
           return;
         }
 
-        myFailedBuilds.put(sBuild.getBuildId(), new FailedBuildInfo(sBuild));
+        @Nullable
+        FailedBuildInfo failedBuildInfo = registerFailedBuild(build);
+        if (failedBuildInfo != null) {
+          scheduleProcessing(failedBuildInfo);
+        }
       }
 
       @Override
       public void buildInterrupted(@NotNull final SRunningBuild build) {
         myFailedBuilds.remove(build.getBuildId());
+        myScheduledBuilds.remove(build.getBuildId());
+        myBuildLocks.remove(build.getBuildId());
+        myProblemTextExtractor.forgetBuild(build.getBuildId());
       }
 
       @Override
       public void buildFinished(@NotNull SRunningBuild build) {
+        myScheduledBuilds.remove(build.getBuildId());
         if (shouldIgnore(build)) {
           myFailedBuilds.remove(build.getBuildId());
+          myBuildLocks.remove(build.getBuildId());
+          myProblemTextExtractor.forgetBuild(build.getBuildId());
           return;
         }
         myExecutor.execute(() -> instance.processDelayedAssignmentsOneThread(build));
@@ -109,6 +159,8 @@ public class FailedTestAndBuildProblemsDispatcher {
                                      @NotNull final ResponsibilityEntry entry,
                                      final boolean isUserAction) {
         super.responsibleChanged(project, testNames, entry, isUserAction);
+        myPreviousResponsibleIndex.testsResponsibleChanged(project, testNames, entry);
+        myActiveInvestigationsIndex.testsResponsibleChanged(project, testNames, entry);
         if (isUserAction && shouldBeReportedAsWrong(entry)) {
           instance.myStatisticsReporter.reportWrongInvestigation(testNames.size());
         }
@@ -127,6 +179,8 @@ public class FailedTestAndBuildProblemsDispatcher {
                                      @NotNull final Collection<BuildProblemInfo> buildProblems,
                                      @Nullable final ResponsibilityEntry entry) {
         super.responsibleChanged(project, buildProblems, entry);
+        myPreviousResponsibleIndex.buildProblemsResponsibleChanged(project, buildProblems, entry);
+        myActiveInvestigationsIndex.buildProblemsResponsibleChanged(project, buildProblems, entry);
         if (shouldBeReportedAsWrong(entry)) {
           instance.myStatisticsReporter.reportWrongInvestigation(buildProblems.size());
         }
@@ -139,21 +193,51 @@ public class FailedTestAndBuildProblemsDispatcher {
     });
   }
 
-  private void processBrokenBuildsOneThread() {
-    String description = String.format("Investigations auto-assigner: processing %s builds in background",
-                                       myFailedBuilds.size());
-    NamedThreadFactory.executeWithNewThreadName(description, this::processBrokenBuilds);
+  @Nullable
+  private FailedBuildInfo registerFailedBuild(@NotNull final SBuild sBuild) {
+    @Nullable
+    FailedBuildInfo failedBuildInfo = myFailedBuilds.get(sBuild.getBuildId());
+    if (failedBuildInfo != null) {
+      return failedBuildInfo;
+    }
+
+    if (shouldIgnore(sBuild) || !(sBuild instanceof BuildEx)) {
+      return null;
+    }
+
+    failedBuildInfo = new FailedBuildInfo(sBuild);
+    @Nullable
+    FailedBuildInfo previouslyAdded = myFailedBuilds.putIfAbsent(sBuild.getBuildId(), failedBuildInfo);
+    return previouslyAdded != null ? previouslyAdded : failedBuildInfo;
+  }
+
+  /*
+    Events of a build which come while its processing is already scheduled are coalesced into the scheduled task.
+    The quiet period lets a burst of failures settle, so they are handled in one pass.
+   */
+  private void scheduleProcessing(@NotNull final FailedBuildInfo failedBuildInfo) {
+    if (!myEventDrivenProcessingEnabled || !myScheduledBuilds.add(failedBuildInfo.getBuildId())) {
+      return;
+    }
+
+    myExecutor.schedule(() -> {
+      myScheduledBuilds.remove(failedBuildInfo.getBuildId());
+      if (!tryProcessBrokenBuild(failedBuildInfo)) {
+        scheduleProcessing(failedBuildInfo);
+      }
+    }, myQuietPeriodInSeconds, TimeUnit.SECONDS);
   }
 
   private void processDelayedAssignmentsOneThread(SBuild nextBuild) {
     @Nullable
     SBuildType sBuildType = nextBuild.getBuildType();
     if (sBuildType != null) {
+      String buildTypeId = sBuildType.getInternalId();
       @Nullable
-      FailedBuildInfo delayedAssignmentsBuildInfo = myDelayedAssignments.get(sBuildType.getInternalId());
+      FailedBuildInfo delayedAssignmentsBuildInfo = myDelayedAssignments.get(buildTypeId);
       if (delayedAssignmentsBuildInfo != null &&
-          nextBuild.getBuildPromotion().isLaterThan(delayedAssignmentsBuildInfo.getBuild().getBuildPromotion())) {
-        myDelayedAssignments.remove(sBuildType.getInternalId());
+          nextBuild.getBuildPromotion().isLaterThan(delayedAssignmentsBuildInfo.getBuild().getBuildPromotion()) &&
+          myDelayedAssignments.remove(buildTypeId, delayedAssignmentsBuildInfo)) {
         processDelayedAssignments(delayedAssignmentsBuildInfo, nextBuild);
       }
     }
@@ -169,7 +253,15 @@ public class FailedTestAndBuildProblemsDispatcher {
   private void processFinishedBuild(@NotNull final FailedBuildInfo failedBuildInfo) {
     String description = String.format("Investigations auto-assigner: processing finished build %s in background",
                                        failedBuildInfo.getBuild().getBuildId());
-    NamedThreadFactory.executeWithNewThreadName(description, () -> this.processBrokenBuild(failedBuildInfo));
+    ReentrantLock buildLock = getBuildLock(failedBuildInfo.getBuildId());
+    buildLock.lock();
+    try {
+      NamedThreadFactory.executeWithNewThreadName(description, () -> myProcessor.processBuild(failedBuildInfo));
+    } finally {
+      myProblemTextExtractor.forgetBuild(failedBuildInfo.getBuildId());
+      forgetBuildLock(failedBuildInfo.getBuildId(), buildLock);
+      buildLock.unlock();
+    }
     LOGGER.debug("Build #" + failedBuildInfo.getBuild().getBuildId() + " will be removed from processing.");
 
     if (failedBuildInfo.shouldDelayAssignments() && !failedBuildInfo.getHeuristicsResult().isEmpty()) {
@@ -186,34 +278,90 @@ public class FailedTestAndBuildProblemsDispatcher {
       return;
     }
 
-    FailedBuildInfo previouslyAdded = myDelayedAssignments.get(sBuildType.getInternalId());
-    if (previouslyAdded == null) {
-      myDelayedAssignments.put(sBuildType.getInternalId(), currentFailedBuildInfo);
-      return;
-    }
+    String buildTypeId = sBuildType.getInternalId();
+    FailedBuildInfo older;
+    FailedBuildInfo newer;
+    synchronized (myDelayedAssignments) {
+      FailedBuildInfo previouslyAdded = myDelayedAssignments.putIfAbsent(buildTypeId, currentFailedBuildInfo);
+      if (previouslyAdded == null) {
+        return;
+      }
 
-    BuildPromotion currentBuildPromotion = currentFailedBuildInfo.getBuild().getBuildPromotion();
-    BuildPromotion previouslyAddedPromotion = previouslyAdded.getBuild().getBuildPromotion();
-    if (currentBuildPromotion.isLaterThan(previouslyAddedPromotion)) {
-      processOlderAndDelayNew(sBuildType, previouslyAdded, currentFailedBuildInfo);
-    } else {
-      processOlderAndDelayNew(sBuildType, currentFailedBuildInfo, previouslyAdded);
+      BuildPromotion currentBuildPromotion = currentFailedBuildInfo.getBuild().getBuildPromotion();
+      BuildPromotion previouslyAddedPromotion = previouslyAdded.getBuild().getBuildPromotion();
+      if (currentBuildPromotion.isLaterThan(previouslyAddedPromotion)) {
+        older = previouslyAdded;
+        newer = currentFailedBuildInfo;
+      } else {
+        older = currentFailedBuildInfo;
+        newer = previouslyAdded;
+      }
+      myDelayedAssignments.put(buildTypeId, newer);
     }
-  }
 
-  private void processOlderAndDelayNew(SBuildType sBuildType, FailedBuildInfo older, FailedBuildInfo newer) {
     processDelayedAssignments(older, newer.getBuild());
-    myDelayedAssignments.put(sBuildType.getInternalId(), newer);
   }
 
   private void processBrokenBuilds() {
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(PerformanceMetrics.generateReport());
+    }
+
     for (FailedBuildInfo failedBuildInfo : myFailedBuilds.values()) {
-      processBrokenBuild(failedBuildInfo);
+      // a build with a scheduled event-driven pass or being processed right now is handled without an extra task
+      if (myScheduledBuilds.contains(failedBuildInfo.getBuildId()) || isBeingProcessed(failedBuildInfo.getBuildId())) {
+        continue;
+      }
+      myExecutor.execute(() -> tryProcessBrokenBuild(failedBuildInfo));
+    }
+  }
+
+  private boolean isBeingProcessed(final long buildId) {
+    @Nullable
+    ReentrantLock buildLock = myBuildLocks.get(buildId);
+    return buildLock != null && buildLock.isLocked();
+  }
+
+  /**
+   * @return false if the build could not be processed as it was being processed by another worker, true otherwise.
+   */
+  private boolean tryProcessBrokenBuild(final FailedBuildInfo failedBuildInfo) {
+    ReentrantLock buildLock = getBuildLock(failedBuildInfo.getBuildId());
+    if (!buildLock.tryLock()) {
+      LOGGER.debug("Build #" + failedBuildInfo.getBuildId() + " is being processed by another worker. Skip it.");
+      return false;
     }
+
+    try {
+      if (myFailedBuilds.get(failedBuildInfo.getBuildId()) != failedBuildInfo) {
+        forgetBuildLock(failedBuildInfo.getBuildId(), buildLock);
+        return true;
+      }
+
+      String description = String.format("Investigations auto-assigner: processing build %s in background",
+                                         failedBuildInfo.getBuildId());
+      NamedThreadFactory.executeWithNewThreadName(description, () -> myProcessor.processBuild(failedBuildInfo));
+      if (myFailedBuilds.get(failedBuildInfo.getBuildId()) != failedBuildInfo) {
+        // the build was interrupted or finished during the processing
+        myProblemTextExtractor.forgetBuild(failedBuildInfo.getBuildId());
+        forgetBuildLock(failedBuildInfo.getBuildId(), buildLock);
+      }
+      return true;
+    } finally {
+      buildLock.unlock();
+    }
+  }
+
+  @NotNull
+  private ReentrantLock getBuildLock(final long buildId) {
+    return myBuildLocks.computeIfAbsent(buildId, id -> new ReentrantLock());
   }
 
-  private synchronized void processBrokenBuild(final FailedBuildInfo failedBuildInfo) {
-    myProcessor.processBuild(failedBuildInfo);
+  // the lock is kept while the build is registered, e.g. when an outdated info of the build was looked at
+  private void forgetBuildLock(final long buildId, @NotNull final ReentrantLock buildLock) {
+    if (!myFailedBuilds.containsKey(buildId)) {
+      myBuildLocks.remove(buildId, buildLock);
+    }
   }
 
   /*
@@ -38,6 +38,22 @@ public class Constants {
 
   // Server internal properties
   public static final String PROCESSING_DELAY_IN_SECONDS = "teamcity.investigationsAutoAssigner.scheduledTaskInterval.seconds";
+  public static final String EVENT_DRIVEN_PROCESSING_ENABLED = "teamcity.investigationsAutoAssigner.eventDrivenProcessing.enabled";
+  public static final String PROCESSING_QUIET_PERIOD_IN_SECONDS = "teamcity.investigationsAutoAssigner.eventDrivenProcessing.quietPeriod.seconds";
+  public static final String PROCESSING_THREADS_NUMBER = "teamcity.investigationsAutoAssigner.processingThreads.number";
+  public static final String CHANGE_SET_CACHE_SIZE = "teamcity.investigationsAutoAssigner.changeSetCache.size";
+  public static final String PROBLEM_TEXT_MAX_LENGTH = "teamcity.investigationsAutoAssigner.problemText.maxLength";
+  public static final String PROBLEM_TEXT_FIRST_LINES_NUMBER =
+    "teamcity.investigationsAutoAssigner.problemText.firstLinesNumber";
+  public static final String EXIT_CODE_LOG_TAIL_SIZE_IN_KB =
+    "teamcity.investigationsAutoAssigner.exitCodeLogTail.sizeInKb";
+  public static final String AUDIT_SCAN_WINDOW_IN_DAYS = "teamcity.investigationsAutoAssigner.auditScan.window.days";
+  public static final String AUDIT_SCAN_MAX_ACTIONS = "teamcity.investigationsAutoAssigner.auditScan.maxActions";
+  public static final String ACTIVE_INVESTIGATIONS_INDEX_MAX_SIZE =
+    "teamcity.investigationsAutoAssigner.activeInvestigationsIndex.maxSize";
+  public static final String ACTIVE_INVESTIGATIONS_RECONCILE_INTERVAL_IN_MINUTES =
+    "teamcity.investigationsAutoAssigner.activeInvestigationsIndex.reconcileInterval.minutes";
+  public static final String PARALLEL_HEURISTICS_ENABLED = "teamcity.investigationsAutoAssigner.parallelHeuristics.enabled";
 
   // Server internal properties (debug use only)
   public static final String INTERNAL_REPORTER_EMAIL = "teamcity.investigationsAutoAssigner.debugEmailAddress";
@@ -53,5 +69,6 @@ public class Constants {
   public static final String ARTIFACT_FILENAME = "suggestions.json";
   public static final String STATISTICS_FILE_NAME = "statistics.json";
   public static final String STATISTICS_FILE_VERSION = "1.3";
+  public static final String PREVIOUS_RESPONSIBLE_INDEX_FILE_NAME = "previousResponsible.bin";
   public static final String ASSIGN_DESCRIPTION_PREFIX = "Investigation was automatically assigned to";
 }
@@ -16,24 +16,44 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.common;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.serverSide.BuildPromotion;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+/**
+ * Holds the processing state of a failed build. Instances are handed between the dispatcher's workers,
+ * so all mutable state is either guarded by the instance monitor or kept in thread-safe containers.
+ */
 public class FailedBuildInfo {
 
   private final SBuild mySBuild;
   private final int myThreshold;
-  private Set<Integer> processedTests = new HashSet<>();
-  private Set<Integer> processedBuildProblems = new HashSet<>();
-  private HeuristicResult myHeuristicResult = new HeuristicResult();
+  // the key of a build whose changes are not shared with other builds, a real key is never empty
+  private static final String NO_CHANGE_SET_KEY = "";
+  // Test run ids are dense within a build, so a bitmap takes about a bit per id
+  private static final int MAX_BITMAP_TEST_RUN_ID = 1 << 24;
+
+  private final BitSet processedTests = new BitSet();
+  private final IntHashSet processedSparseTests = new IntHashSet();
+  private final IntHashSet processedBuildProblems = new IntHashSet();
+  // promotion id -> ids of the problems of the previous build, a set is only read after it is collected
+  private final ConcurrentHashMap<Long, IntHashSet> myPreviousBuildProblemIds = new ConcurrentHashMap<>();
+  private final HeuristicResult myHeuristicResult = new HeuristicResult();
   private final boolean myShouldDelayAssignments;
-  private int myProcessedCount = 0;
+  private final AtomicInteger myProcessedCount = new AtomicInteger();
+  @Nullable private volatile FailuresFingerprint myProcessedFingerprint;
+  @Nullable private volatile String myChangeSetKey;
 
   public FailedBuildInfo(final SBuild sBuild) {
     mySBuild = sBuild;
@@ -50,26 +70,87 @@ public class FailedBuildInfo {
     return mySBuild.getBuildId();
   }
 
-  public void addProcessedTestRuns(@NotNull Collection<STestRun> tests) {
+  public synchronized void addProcessedTestRuns(@NotNull Collection<STestRun> tests) {
     for (STestRun testRun : tests) {
-      processedTests.add(testRun.getTestRunId());
+      int testRunId = testRun.getTestRunId();
+      if (isBitmapTestRunId(testRunId)) {
+        processedTests.set(testRunId);
+      } else {
+        processedSparseTests.add(testRunId);
+      }
     }
   }
 
-  public void addProcessedBuildProblems(@NotNull Collection<BuildProblem> buildProblems) {
+  public synchronized void addProcessedBuildProblems(@NotNull Collection<BuildProblem> buildProblems) {
     for (BuildProblem buildProblem : buildProblems) {
       processedBuildProblems.add(buildProblem.getId());
     }
   }
 
-  public boolean checkNotProcessed(STestRun sTestRun) {
-    return !processedTests.contains(sTestRun.getTestRunId());
+  /**
+   * @return the test runs which were not processed yet in the original order.
+   */
+  @NotNull
+  public synchronized List<STestRun> collectNotProcessed(@NotNull final List<STestRun> testRuns) {
+    List<STestRun> notProcessed = new ArrayList<>();
+    for (STestRun testRun : testRuns) {
+      if (checkNotProcessed(testRun)) {
+        notProcessed.add(testRun);
+      }
+    }
+    return notProcessed;
+  }
+
+  public synchronized boolean checkNotProcessed(STestRun sTestRun) {
+    int testRunId = sTestRun.getTestRunId();
+    return isBitmapTestRunId(testRunId) ? !processedTests.get(testRunId) : !processedSparseTests.contains(testRunId);
   }
 
-  public boolean checkNotProcessed(final BuildProblem buildProblem) {
+  private static boolean isBitmapTestRunId(final int testRunId) {
+    return testRunId >= 0 && testRunId < MAX_BITMAP_TEST_RUN_ID;
+  }
+
+  public synchronized boolean checkNotProcessed(final BuildProblem buildProblem) {
     return !processedBuildProblems.contains(buildProblem.getId());
   }
 
+  /**
+   * @return ids of the problems of the build previous to the promotion, collected once for the build lifetime.
+   */
+  @NotNull
+  public IntHashSet getPreviousBuildProblemIds(@NotNull final BuildPromotion buildPromotion,
+                                               @NotNull final Function<BuildPromotion, IntHashSet> collector) {
+    return myPreviousBuildProblemIds.computeIfAbsent(buildPromotion.getId(), id -> collector.apply(buildPromotion));
+  }
+
+  /**
+   * @return key of the changes of the build, calculated once for the build lifetime; null if the changes of the build
+   * are not shared with other builds.
+   */
+  @Nullable
+  public String getChangeSetKey(@NotNull final Function<SBuild, String> calculator) {
+    String changeSetKey = myChangeSetKey;
+    if (changeSetKey == null) {
+      @Nullable
+      String calculatedKey = calculator.apply(mySBuild);
+      changeSetKey = calculatedKey == null ? NO_CHANGE_SET_KEY : calculatedKey;
+      myChangeSetKey = changeSetKey;
+    }
+    return NO_CHANGE_SET_KEY.equals(changeSetKey) ? null : changeSetKey;
+  }
+
+  /**
+   * @param fingerprint current fingerprint of the build failures or null if it could not be calculated.
+   * @return true if the build could have new failures since the last processing.
+   */
+  public boolean hasChangesSinceLastProcessing(@Nullable final FailuresFingerprint fingerprint) {
+    return fingerprint == null || !fingerprint.equals(myProcessedFingerprint);
+  }
+
+  public void setProcessedFingerprint(@Nullable final FailuresFingerprint fingerprint) {
+    myProcessedFingerprint = fingerprint;
+  }
+
   public void addHeuristicsResult(final HeuristicResult heuristicsResult) {
     myHeuristicResult.merge(heuristicsResult);
   }
@@ -87,10 +168,10 @@ public class FailedBuildInfo {
   }
 
   public int getLimitToProcess() {
-    return myThreshold - myProcessedCount;
+    return myThreshold - myProcessedCount.get();
   }
 
   public void increaseProcessedNumber(final int numberOfProcessedProblems) {
-    myProcessedCount += numberOfProcessedProblems;
+    myProcessedCount.addAndGet(numberOfProcessedProblems);
   }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+/**
+ * Cheap summary of failures of a build. If two fingerprints of the same build are equal,
+ * no new failed tests or build problems were reported in between.
+ */
+public final class FailuresFingerprint {
+  private final int myFailedTestCount;
+  private final int myTestCount;
+  private final int myBuildProblemCount;
+
+  public FailuresFingerprint(final int failedTestCount, final int testCount, final int buildProblemCount) {
+    myFailedTestCount = failedTestCount;
+    myTestCount = testCount;
+    myBuildProblemCount = buildProblemCount;
+  }
+
+  @Override
+  public boolean equals(final Object another) {
+    if (!(another instanceof FailuresFingerprint)) {
+      return false;
+    }
+
+    FailuresFingerprint anotherFingerprint = (FailuresFingerprint)another;
+    return myFailedTestCount == anotherFingerprint.myFailedTestCount &&
+           myTestCount == anotherFingerprint.myTestCount &&
+           myBuildProblemCount == anotherFingerprint.myBuildProblemCount;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * myFailedTestCount + myTestCount) + myBuildProblemCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("failed tests: %s, tests: %s, build problems: %s",
+                         myFailedTestCount, myTestCount, myBuildProblemCount);
+  }
+}
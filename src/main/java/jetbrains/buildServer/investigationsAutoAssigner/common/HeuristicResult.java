@@ -16,53 +16,100 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.common;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Keeps found responsibilities by test run and build problem ids.
+ * Equal responsibilities are stored as one shared instance, so a result for a build with thousands of failures
+ * assigned to the same user keeps a single {@link Responsibility} object.
+ * The result of a build is shared between processing threads, therefore all accessors are synchronized.
+ */
 public class HeuristicResult {
+  // taken before both locks when two results have the same identity hash code
+  private static final Object ourTieLock = new Object();
 
-  private HashMap<Integer, Responsibility> testRun2Responsibility;
-  private HashMap<Integer, Responsibility> buildProblem2Responsibility;
-
-  public HeuristicResult() {
-    testRun2Responsibility = new HashMap<>();
-    buildProblem2Responsibility = new HashMap<>();
-  }
+  private final IntObjectHashMap<Responsibility> testRun2Responsibility = new IntObjectHashMap<>();
+  private final IntObjectHashMap<Responsibility> buildProblem2Responsibility = new IntObjectHashMap<>();
+  private final HashMap<Responsibility, Responsibility> myInternedResponsibilities = new HashMap<>();
 
-  public void addResponsibility(final STestRun sTestRun, final Responsibility responsibility) {
-    testRun2Responsibility.put(sTestRun.getTestRunId(), responsibility);
+  public synchronized void addResponsibility(final STestRun sTestRun, final Responsibility responsibility) {
+    testRun2Responsibility.put(sTestRun.getTestRunId(), intern(responsibility));
   }
 
-  public void addResponsibility(final BuildProblem buildProblem, final Responsibility responsibility) {
-    buildProblem2Responsibility.put(buildProblem.getId(), responsibility);
+  public synchronized void addResponsibility(final BuildProblem buildProblem, final Responsibility responsibility) {
+    buildProblem2Responsibility.put(buildProblem.getId(), intern(responsibility));
   }
 
   @Nullable
-  public Responsibility getResponsibility(final STestRun sTestRun) {
+  public synchronized Responsibility getResponsibility(final STestRun sTestRun) {
     return testRun2Responsibility.get(sTestRun.getTestRunId());
   }
 
   @Nullable
-  public Responsibility getResponsibility(final BuildProblem buildProblem) {
+  public synchronized Responsibility getResponsibility(final BuildProblem buildProblem) {
     return buildProblem2Responsibility.get(buildProblem.getId());
   }
 
+  /**
+   * Copies all responsibilities of another result into this one, the responsibilities of another result win.
+   * The locks of the two results are taken in the order of their identity hash codes, so merges in opposite
+   * directions do not deadlock.
+   */
   public void merge(final HeuristicResult heuristicResult) {
-    testRun2Responsibility.putAll(heuristicResult.testRun2Responsibility);
-    buildProblem2Responsibility.putAll(heuristicResult.buildProblem2Responsibility);
+    if (heuristicResult == this) {
+      return;
+    }
+
+    final int thisHash = System.identityHashCode(this);
+    final int anotherHash = System.identityHashCode(heuristicResult);
+    if (thisHash == anotherHash) {
+      synchronized (ourTieLock) {
+        synchronized (this) {
+          synchronized (heuristicResult) {
+            copyFrom(heuristicResult);
+          }
+        }
+      }
+      return;
+    }
+
+    final Object firstLock = thisHash < anotherHash ? this : heuristicResult;
+    final Object secondLock = thisHash < anotherHash ? heuristicResult : this;
+    synchronized (firstLock) {
+      synchronized (secondLock) {
+        copyFrom(heuristicResult);
+      }
+    }
   }
 
-  public boolean isEmpty() {
+  private void copyFrom(@NotNull final HeuristicResult heuristicResult) {
+    heuristicResult.testRun2Responsibility.forEach(
+      (testRunId, responsibility) -> testRun2Responsibility.put(testRunId, intern(responsibility)));
+    heuristicResult.buildProblem2Responsibility.forEach(
+      (problemId, responsibility) -> buildProblem2Responsibility.put(problemId, intern(responsibility)));
+  }
+
+  public synchronized boolean isEmpty() {
     return testRun2Responsibility.isEmpty() && buildProblem2Responsibility.isEmpty();
   }
 
-  public List<Responsibility> getAllResponsibilities() {
-    return Stream.concat(testRun2Responsibility.values().stream(), buildProblem2Responsibility.values().stream())
-                 .collect(Collectors.toList());
+  public synchronized List<Responsibility> getAllResponsibilities() {
+    List<Responsibility> result =
+      new ArrayList<>(testRun2Responsibility.size() + buildProblem2Responsibility.size());
+    testRun2Responsibility.forEachValue(result::add);
+    buildProblem2Responsibility.forEachValue(result::add);
+    return result;
+  }
+
+  @NotNull
+  private Responsibility intern(@NotNull final Responsibility responsibility) {
+    Responsibility interned = myInternedResponsibilities.putIfAbsent(responsibility, responsibility);
+    return interned != null ? interned : responsibility;
   }
 }
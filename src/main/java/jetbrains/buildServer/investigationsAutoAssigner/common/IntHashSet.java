@@ -0,0 +1,123 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import java.util.Arrays;
+
+/**
+ * Set of int values based on open addressing with linear probing.
+ * Unlike {@code HashSet<Integer>} it neither boxes values nor allocates a node per value.
+ * The class is not thread-safe.
+ */
+public final class IntHashSet {
+  private static final int EMPTY = 0;
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int[] myValues;
+  private int mySize;
+  private boolean myContainsEmptyValue;
+
+  public IntHashSet() {
+    myValues = new int[DEFAULT_CAPACITY];
+  }
+
+  /**
+   * @return true if the value was not in the set before.
+   */
+  public boolean add(final int value) {
+    if (value == EMPTY) {
+      boolean added = !myContainsEmptyValue;
+      myContainsEmptyValue = true;
+      return added;
+    }
+
+    if ((mySize + 1) * 2 > myValues.length) {
+      rehash(myValues.length * 2);
+    }
+
+    return insert(myValues, value);
+  }
+
+  public boolean contains(final int value) {
+    if (value == EMPTY) {
+      return myContainsEmptyValue;
+    }
+
+    final int mask = myValues.length - 1;
+    for (int index = indexOf(value, mask); ; index = (index + 1) & mask) {
+      int current = myValues[index];
+      if (current == value) {
+        return true;
+      }
+      if (current == EMPTY) {
+        return false;
+      }
+    }
+  }
+
+  public int size() {
+    return mySize + (myContainsEmptyValue ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * @return number of the slots in the table, every slot takes 4 bytes.
+   */
+  int getCapacity() {
+    return myValues.length;
+  }
+
+  public void clear() {
+    Arrays.fill(myValues, EMPTY);
+    mySize = 0;
+    myContainsEmptyValue = false;
+  }
+
+  private boolean insert(final int[] values, final int value) {
+    final int mask = values.length - 1;
+    for (int index = indexOf(value, mask); ; index = (index + 1) & mask) {
+      int current = values[index];
+      if (current == value) {
+        return false;
+      }
+      if (current == EMPTY) {
+        values[index] = value;
+        mySize++;
+        return true;
+      }
+    }
+  }
+
+  private void rehash(final int newCapacity) {
+    final int[] oldValues = myValues;
+    myValues = new int[newCapacity];
+    mySize = 0;
+    for (int value : oldValues) {
+      if (value != EMPTY) {
+        insert(myValues, value);
+      }
+    }
+  }
+
+  private static int indexOf(final int value, final int mask) {
+    final int hash = value * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
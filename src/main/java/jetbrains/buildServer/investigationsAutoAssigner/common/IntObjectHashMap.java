@@ -0,0 +1,149 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Map from int keys to non-null values based on open addressing with linear probing.
+ * Keys are neither boxed nor wrapped into entries. The class is not thread-safe.
+ */
+public final class IntObjectHashMap<V> {
+  private static final int EMPTY_KEY = 0;
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int[] myKeys;
+  private Object[] myValues;
+  private int mySize;
+  @Nullable private V myEmptyKeyValue;
+
+  public IntObjectHashMap() {
+    myKeys = new int[DEFAULT_CAPACITY];
+    myValues = new Object[DEFAULT_CAPACITY];
+  }
+
+  /**
+   * @return the previous value for the key, null if there was no mapping.
+   */
+  @Nullable
+  public V put(final int key, @NotNull final V value) {
+    if (key == EMPTY_KEY) {
+      V previous = myEmptyKeyValue;
+      myEmptyKeyValue = value;
+      return previous;
+    }
+
+    if ((mySize + 1) * 2 > myKeys.length) {
+      rehash(myKeys.length * 2);
+    }
+
+    return insert(key, value);
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V get(final int key) {
+    if (key == EMPTY_KEY) {
+      return myEmptyKeyValue;
+    }
+
+    final int mask = myKeys.length - 1;
+    for (int index = indexOf(key, mask); ; index = (index + 1) & mask) {
+      int current = myKeys[index];
+      if (current == key) {
+        return (V)myValues[index];
+      }
+      if (current == EMPTY_KEY) {
+        return null;
+      }
+    }
+  }
+
+  public int size() {
+    return mySize + (myEmptyKeyValue != null ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public void forEach(@NotNull final EntryConsumer<? super V> consumer) {
+    if (myEmptyKeyValue != null) {
+      consumer.accept(EMPTY_KEY, myEmptyKeyValue);
+    }
+
+    for (int i = 0; i < myKeys.length; i++) {
+      if (myKeys[i] != EMPTY_KEY) {
+        consumer.accept(myKeys[i], valueAt(i));
+      }
+    }
+  }
+
+  public void forEachValue(@NotNull final Consumer<? super V> consumer) {
+    forEach((key, value) -> consumer.accept(value));
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(final int index) {
+    return (V)myValues[index];
+  }
+
+  @Nullable
+  private V insert(final int key, @NotNull final V value) {
+    final int mask = myKeys.length - 1;
+    for (int index = indexOf(key, mask); ; index = (index + 1) & mask) {
+      int current = myKeys[index];
+      if (current == key) {
+        V previous = valueAt(index);
+        myValues[index] = value;
+        return previous;
+      }
+      if (current == EMPTY_KEY) {
+        myKeys[index] = key;
+        myValues[index] = value;
+        mySize++;
+        return null;
+      }
+    }
+  }
+
+  private void rehash(final int newCapacity) {
+    final int[] oldKeys = myKeys;
+    final Object[] oldValues = myValues;
+    myKeys = new int[newCapacity];
+    myValues = new Object[newCapacity];
+    mySize = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY_KEY) {
+        @SuppressWarnings("unchecked")
+        V value = (V)oldValues[i];
+        insert(oldKeys[i], value);
+      }
+    }
+  }
+
+  private static int indexOf(final int key, final int mask) {
+    final int hash = key * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  public interface EntryConsumer<V> {
+    void accept(int key, V value);
+  }
+}
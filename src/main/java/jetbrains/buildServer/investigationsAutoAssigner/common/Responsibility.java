@@ -16,10 +16,13 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.common;
 
-import java.util.Arrays;
 import jetbrains.buildServer.users.User;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * A user found by a heuristic with the description of the reason. Responsibilities with the same user id and
+ * description and of the same class are equal, {@link HeuristicResult} keeps one instance of them.
+ */
 public class Responsibility {
   private final User myUser;
   private final String myDescription;
@@ -49,7 +52,8 @@ public class Responsibility {
 
   @Override
   public boolean equals(final Object another) {
-    if (!(another instanceof Responsibility)) {
+    // a DefaultUserResponsibility is never equal to a plain Responsibility, the assigners tell them apart
+    if (another == null || getClass() != another.getClass()) {
       return false;
     }
 
@@ -60,9 +64,6 @@ public class Responsibility {
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(new Object[]{
-      myUser.getId(),
-      myDescription
-    });
+    return 31 * Long.hashCode(myUser.getId()) + myDescription.hashCode();
   }
 }
\ No newline at end of file
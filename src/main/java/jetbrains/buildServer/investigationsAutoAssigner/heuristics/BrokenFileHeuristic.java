@@ -17,29 +17,26 @@
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
 import com.intellij.openapi.diagnostic.Logger;
-import java.io.File;
-import java.util.*;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Set;
 import java.util.stream.Collectors;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetric;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemText;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemTextExtractor;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import jetbrains.buildServer.users.SUser;
-import jetbrains.buildServer.util.FileUtil;
-import jetbrains.buildServer.vcs.SVcsModification;
-import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
-import jetbrains.buildServer.vcs.VcsFileModification;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import static com.intellij.openapi.util.text.StringUtil.join;
-
 public class BrokenFileHeuristic implements Heuristic {
 
   private static final Logger LOGGER = Logger.getInstance(BrokenFileHeuristic.class.getName());
-  private static final int SMALL_PATTERN_THRESHOLD = 15;
   private final ProblemTextExtractor myProblemTextExtractor;
 
   public BrokenFileHeuristic(ProblemTextExtractor problemTextExtractor) {
@@ -55,28 +52,22 @@ public class BrokenFileHeuristic implements Heuristic {
   public HeuristicResult findResponsibleUser(@NotNull HeuristicContext heuristicContext) {
     HeuristicResult result = new HeuristicResult();
     SBuild sBuild = heuristicContext.getBuild();
+    FilePatternIndex filePatternIndex = heuristicContext.getBuildChangeContext().getFilePatternIndex();
+    if (filePatternIndex.isEmpty()) return result;
 
-    final BuildPromotion buildPromotion = sBuild.getBuildPromotion();
-    if (!(buildPromotion instanceof BuildPromotionEx)) return result;
-
-    SelectPrevBuildPolicy prevBuildPolicy = SelectPrevBuildPolicy.SINCE_LAST_BUILD;
-    List<SVcsModification> vcsChanges = ((BuildPromotionEx)buildPromotion).getDetectedChanges(prevBuildPolicy, false)
-                                                                          .stream()
-                                                                          .map(ChangeDescriptor::getRelatedVcsChange)
-                                                                          .filter(Objects::nonNull)
-                                                                          .collect(Collectors.toList());
+    FailureClusters failureClusters = new FailureClusters();
     for (STestRun sTestRun : heuristicContext.getTestRuns()) {
-      String problemText = myProblemTextExtractor.getBuildProblemText(sTestRun);
+      ProblemText problemText = myProblemTextExtractor.getBuildProblemText(sTestRun);
       Responsibility responsibility =
-        findResponsibleUser(vcsChanges, sBuild, problemText, heuristicContext.getUserFilter());
+        findResponsibleUser(filePatternIndex, sBuild, problemText, 0, heuristicContext.getUserFilter(), failureClusters);
       if (responsibility != null)
         result.addResponsibility(sTestRun, responsibility);
     }
 
     for (BuildProblem buildProblem : heuristicContext.getBuildProblems()) {
-      String problemText = myProblemTextExtractor.getBuildProblemText(buildProblem, sBuild);
+      ProblemText problemText = myProblemTextExtractor.getBuildProblemText(buildProblem, sBuild);
       Responsibility responsibility =
-        findResponsibleUser(vcsChanges, sBuild, problemText, heuristicContext.getUserFilter());
+        findResponsibleUser(filePatternIndex, sBuild, problemText, 0, heuristicContext.getUserFilter(), null);
       if (responsibility != null)
         result.addResponsibility(buildProblem, responsibility);
     }
@@ -84,29 +75,83 @@ public class BrokenFileHeuristic implements Heuristic {
     return result;
   }
 
+  @Override
+  public boolean isApplicable(@NotNull HeuristicContext heuristicContext) {
+    return !heuristicContext.getBuildChangeContext().getChanges().isEmpty();
+  }
+
+  @NotNull
+  @Override
+  public Cost getCost() {
+    return Cost.EXPENSIVE;
+  }
+
+  /**
+   * Looks through the tiers of the problem text from the cheapest one and stops as soon as the matched files
+   * point to a committer (or to several of them, which makes the result ambiguous). If nothing was found before
+   * the test output, the result for the output is shared by the failures with the same output.
+   */
   @Nullable
-  private Responsibility findResponsibleUser(List<SVcsModification> vcsChanges,
+  private Responsibility findResponsibleUser(FilePatternIndex filePatternIndex,
                                              SBuild sBuild,
-                                             String problemText,
-                                             List<String> usernamesBlackList) {
+                                             ProblemText problemText,
+                                             int firstTier,
+                                             Set<String> usernamesBlackList,
+                                             @Nullable FailureClusters failureClusters) {
+    final BitSet matches = new BitSet();
+    for (int tier = firstTier; tier < problemText.getTiersCount(); tier++) {
+      if (failureClusters != null &&
+          matches.isEmpty() &&
+          problemText.getTierKind(tier) == ProblemText.TierKind.FIRST_LINES) {
+        final int outputTier = tier;
+        return failureClusters.computeIfAbsent(
+          problemText,
+          outputTier,
+          () -> findResponsibleUser(filePatternIndex, sBuild, problemText, outputTier, usernamesBlackList, null));
+      }
+
+      final BitSet tierMatches = filePatternIndex.findMatches(problemText.getTier(tier));
+      final int matchesCount = matches.cardinality();
+      matches.or(tierMatches);
+      if (matches.cardinality() == matchesCount) continue;
+
+      final Suspect suspect = findSuspect(filePatternIndex, sBuild, matches, usernamesBlackList);
+      if (suspect == null) continue;
+
+      PerformanceMetrics.increment(problemText.getTierKind(tier).getHitMetric());
+      return suspect.toResponsibility();
+    }
+
+    PerformanceMetrics.increment(PerformanceMetric.brokenFileNotFound);
+    return null;
+  }
+
+  @Nullable
+  private Suspect findSuspect(FilePatternIndex filePatternIndex,
+                              SBuild sBuild,
+                              BitSet matches,
+                              Set<String> usernamesBlackList) {
     SUser responsibleUser = null;
     String brokenFile = null;
-    for (SVcsModification vcsChange : vcsChanges) {
-      final String foundBrokenFile = findBrokenFile(vcsChange, problemText);
+    final String[] brokenFiles = filePatternIndex.getBrokenFiles(matches);
+    for (int changeIndex = 0; changeIndex < brokenFiles.length; changeIndex++) {
+      final String foundBrokenFile = brokenFiles[changeIndex];
       if (foundBrokenFile == null) continue;
 
-      final Collection<SUser> changeCommitters = vcsChange.getCommitters()
-                                                          .stream()
-                                                          .filter(user->!usernamesBlackList.contains(user.getUsername()))
-                                                          .collect(Collectors.toList());
+      final Collection<SUser> changeCommitters =
+        filePatternIndex.getVcsChange(changeIndex)
+                        .getCommitters()
+                        .stream()
+                        .filter(user -> !usernamesBlackList.contains(user.getUsername()))
+                        .collect(Collectors.toList());
       if (changeCommitters.size() == 0) continue;
-      if (changeCommitters.size() > 1) return null;
+      if (changeCommitters.size() > 1) return Suspect.AMBIGUOUS;
 
       final SUser foundResponsibleUser = changeCommitters.iterator().next();
       if (responsibleUser != null && !responsibleUser.equals(foundResponsibleUser)) {
         LOGGER.debug(String.format("Build %s: There are more than one committer since last build",
                                    sBuild.getBuildId()));
-        return null;
+        return Suspect.AMBIGUOUS;
       }
       responsibleUser = foundResponsibleUser;
       brokenFile = foundBrokenFile;
@@ -114,67 +159,27 @@ public class BrokenFileHeuristic implements Heuristic {
 
     if (responsibleUser == null) return null;
 
-    String description = String.format("changed the suspicious file \"%s\" which probably broke the build", brokenFile);
-    return new Responsibility(responsibleUser, description);
+    return new Suspect(responsibleUser, brokenFile);
   }
 
-  @Nullable
-  private static String findBrokenFile(@NotNull final SVcsModification vcsChange, @NotNull final String problemText) {
-    for (VcsFileModification modification : vcsChange.getChanges()) {
-      final String filePath = modification.getRelativeFileName();
-      for (String pattern : getPatterns(filePath)) {
-        if (problemText.contains(pattern)) {
-          return filePath;
-        }
-      }
-    }
-    return null;
-  }
+  private static final class Suspect {
+    private static final Suspect AMBIGUOUS = new Suspect(null, null);
 
-  /**
-   * This method is required to separate path1/path2/fileName with path3/path4/fileName.
-   * Also it allows to handle different separators. Currently supported: '.','/','\' separators.
-   * @param filePath - filePath of the modification
-   * @return various combination of fileName and its parents(up to 2th level) with separators.
-   */
-  @NotNull
-  private static List<String> getPatterns(@NotNull final String filePath) {
-    final List<String> parts = new ArrayList<>();
-    String withoutExtension = FileUtil.getNameWithoutExtension(new File(filePath));
-    if (withoutExtension.length() == 0) {
-      return Collections.emptyList();
-    }
-    parts.add(withoutExtension);
-
-    String path = getParentPath(filePath);
-    if (path != null) {
-      parts.add(0, new File(path).getName());
-      path = getParentPath(path);
-      if (path != null) {
-        parts.add(0, new File(path).getName());
-      }
-    }
+    private final SUser myUser;
+    private final String myBrokenFile;
 
-    if (isSmallPattern(parts)) {
-      String withExtension = FileUtil.getName(filePath);
-      parts.set(0, withExtension);
+    private Suspect(@Nullable final SUser user, @Nullable final String brokenFile) {
+      myUser = user;
+      myBrokenFile = brokenFile;
     }
 
-    return parts.isEmpty() ?
-           Collections.emptyList() :
-           Arrays.asList(join(parts, "."), join(parts, "/"), join(parts, "\\"));
-  }
+    @Nullable
+    Responsibility toResponsibility() {
+      if (myUser == null) return null;
 
-  private static boolean isSmallPattern(final List<String> parts) {
-    return join(parts, ".").length() <= SMALL_PATTERN_THRESHOLD;
-  }
-
-  // we do not use File#getParentFile() instead because we must not take current
-  // working directory into account, i.e. getParentPath("abc") must return null
-  @Nullable
-  private static String getParentPath(@NotNull final String path) {
-    final int lastSlashPos = path.replace('\\', '/').lastIndexOf('/');
-    return lastSlashPos == -1 ? null : path.substring(0, lastSlashPos);
+      String description =
+        String.format("changed the suspicious file \"%s\" which probably broke the build", myBrokenFile);
+      return new Responsibility(myUser, description);
+    }
   }
 }
-
@@ -17,13 +17,13 @@
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
 import com.intellij.openapi.diagnostic.Logger;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import jetbrains.buildServer.investigationsAutoAssigner.common.DefaultUserResponsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
-import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.users.UserModelEx;
 import jetbrains.buildServer.users.impl.UserEx;
@@ -51,7 +51,8 @@ public class DefaultUserHeuristic implements Heuristic {
     HeuristicResult result = new HeuristicResult();
 
     SBuild build = heuristicContext.getBuild();
-    List<String> defaultResponsible = CustomParameters.getDefaultResponsible(build);
+    List<String> defaultResponsible =
+      new ArrayList<>(heuristicContext.getBuildChangeContext().getBuildFeatureSettings().getDefaultResponsible());
 
     if (defaultResponsible.isEmpty()) return result;
 
@@ -80,4 +81,15 @@ public class DefaultUserHeuristic implements Heuristic {
 
     return result;
   }
+
+  @Override
+  public boolean isApplicable(@NotNull HeuristicContext heuristicContext) {
+    return !heuristicContext.getBuildChangeContext().getBuildFeatureSettings().getDefaultResponsible().isEmpty();
+  }
+
+  @NotNull
+  @Override
+  public Cost getCost() {
+    return Cost.CHEAP;
+  }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetric;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemText;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Groups the failures looked through by one pass of {@link BrokenFileHeuristic} by the fingerprint of their output.
+ * When many tests fail with the same output, it is analyzed for the first of them and the result is reused by the rest.
+ * The other heuristics still look at every failure: their results depend on the failure itself, not on its output.
+ * The fingerprint is taken from all the tiers the result is computed from and ignores standalone numbers, line
+ * numbers and object addresses, so timings, ids or `:42` suffixes do not split a cluster while digits in names do.
+ */
+final class FailureClusters {
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final Map<Long, Responsibility> myResponsibilities = new HashMap<>();
+
+  /**
+   * @param problemText text of the failure.
+   * @param firstTier index of the first tier the evaluation looks through, it looks through all the next ones too.
+   */
+  @Nullable
+  Responsibility computeIfAbsent(@NotNull final ProblemText problemText,
+                                 final int firstTier,
+                                 @NotNull final Supplier<Responsibility> evaluation) {
+    long fingerprint = FNV_OFFSET_BASIS;
+    for (int tier = firstTier; tier < problemText.getTiersCount(); tier++) {
+      // tiers are separated, so the same text split differently is another output
+      fingerprint = getFingerprint(problemText.getTier(tier), (fingerprint ^ '\0') * FNV_PRIME);
+    }
+    if (myResponsibilities.containsKey(fingerprint)) {
+      PerformanceMetrics.increment(PerformanceMetric.brokenFileClusterHits);
+      return myResponsibilities.get(fingerprint);
+    }
+
+    final Responsibility responsibility = evaluation.get();
+    myResponsibilities.put(fingerprint, responsibility);
+    return responsibility;
+  }
+
+  static long getFingerprint(@NotNull final CharSequence output) {
+    return getFingerprint(output, FNV_OFFSET_BASIS);
+  }
+
+  private static long getFingerprint(@NotNull final CharSequence output, final long initialHash) {
+    long hash = initialHash;
+    boolean pendingSpace = false;
+    final int length = output.length();
+    for (int i = 0; i < length; i++) {
+      final char c = output.charAt(i);
+      if (Character.isWhitespace(c)) {
+        pendingSpace = true;
+        continue;
+      }
+
+      final int tokenEnd = findVolatileTokenEnd(output, i);
+      if (tokenEnd > i) {
+        // "Object@6d06d69c" keeps the "@" only
+        if (c == '@') {
+          if (pendingSpace) {
+            hash = (hash ^ ' ') * FNV_PRIME;
+            pendingSpace = false;
+          }
+          hash = (hash ^ c) * FNV_PRIME;
+        }
+        i = tokenEnd - 1;
+        continue;
+      }
+
+      if (pendingSpace) {
+        hash = (hash ^ ' ') * FNV_PRIME;
+        pendingSpace = false;
+      }
+      hash = (hash ^ c) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * @return the end of a token which differs from run to run and starts at the index: a standalone number
+   * (including the line number in "Client.java:42"), an address after "@" or a "0x" prefixed hex number;
+   * the index itself if there is no such token.
+   */
+  private static int findVolatileTokenEnd(@NotNull final CharSequence output, final int index) {
+    final char c = output.charAt(index);
+    if (c == '@') {
+      return endOfStandaloneToken(output, index + 1, findHexEnd(output, index + 1), index);
+    }
+
+    if (!Character.isDigit(c) || index > 0 && isIdentifierPart(output.charAt(index - 1))) {
+      return index;
+    }
+
+    if (c == '0' && index + 1 < output.length() && Character.toLowerCase(output.charAt(index + 1)) == 'x') {
+      final int hexEnd = endOfStandaloneToken(output, index + 2, findHexEnd(output, index + 2), index);
+      if (hexEnd > index) return hexEnd;
+    }
+
+    int end = index;
+    while (end < output.length() && Character.isDigit(output.charAt(end))) {
+      end++;
+    }
+    return endOfStandaloneToken(output, index, end, index);
+  }
+
+  private static int findHexEnd(@NotNull final CharSequence output, final int start) {
+    int end = start;
+    while (end < output.length() && isHexDigit(output.charAt(end))) {
+      end++;
+    }
+    return end;
+  }
+
+  // the token is dropped only if it is not empty and is not a part of a longer word, e.g. "@Deprecated" or "2nd"
+  private static int endOfStandaloneToken(@NotNull final CharSequence output,
+                                          final int start,
+                                          final int end,
+                                          final int noToken) {
+    if (end == start || end < output.length() && isIdentifierPart(output.charAt(end))) {
+      return noToken;
+    }
+    return end;
+  }
+
+  private static boolean isHexDigit(final char c) {
+    return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+  }
+
+  private static boolean isIdentifierPart(final char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
+
+import java.util.*;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.VcsFileModification;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keys of the files changed by a set of VCS changes, which are looked for in the failure texts
+ * by {@link BrokenFileHeuristic}. The index is computed once per change set and a failure text is parsed
+ * by {@link StackTraceParser} into the file references it mentions, so every reference costs a few lookups
+ * in the sorted keys whatever the number of changed files is. A reference starts at a token boundary and
+ * matches a key when it ends with the key or continues with one of {@code .$:(} after it, so {@code com/foo/Bar}
+ * matches {@code com/foo/Bar.java}, but {@code com/foo/BarTest} does not. The name of a changed file without
+ * an extension may be followed by any text, nothing separates it from the text after it.
+ */
+public final class FilePatternIndex {
+  private final List<SVcsModification> myVcsChanges;
+  private final String[][] myFilePaths;
+  private final TreeMap<String, Integer> myKeyIds;
+  // ids of the keys of the files without an extension
+  private final BitSet myKeysWithoutExtension;
+  // pairs of (change index, file index) for every key id
+  private final int[][] myKeyOwners;
+
+  private FilePatternIndex(@NotNull final List<SVcsModification> vcsChanges,
+                           @NotNull final String[][] filePaths,
+                           @NotNull final TreeMap<String, Integer> keyIds,
+                           @NotNull final BitSet keysWithoutExtension,
+                           @NotNull final int[][] keyOwners) {
+    myVcsChanges = vcsChanges;
+    myFilePaths = filePaths;
+    myKeyIds = keyIds;
+    myKeysWithoutExtension = keysWithoutExtension;
+    myKeyOwners = keyOwners;
+  }
+
+  @NotNull
+  public static FilePatternIndex create(@NotNull final List<SVcsModification> vcsChanges) {
+    String[][] filePaths = new String[vcsChanges.size()][];
+    TreeMap<String, Integer> keyIds = new TreeMap<>();
+    BitSet keysWithoutExtension = new BitSet();
+    List<int[]> keyOwners = new ArrayList<>();
+    for (int changeIndex = 0; changeIndex < vcsChanges.size(); changeIndex++) {
+      List<String> changeFilePaths = new ArrayList<>();
+      for (VcsFileModification modification : vcsChanges.get(changeIndex).getChanges()) {
+        final String filePath = modification.getRelativeFileName();
+        final String key = StackTraceParser.getFileKey(filePath);
+        if (key == null) continue;
+
+        int fileIndex = changeFilePaths.size();
+        changeFilePaths.add(filePath);
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) {
+          keyId = keyOwners.size();
+          keyIds.put(key, keyId);
+          keyOwners.add(new int[0]);
+        }
+        if (!hasExtension(filePath)) {
+          keysWithoutExtension.set(keyId);
+        }
+        int[] owners = keyOwners.get(keyId);
+        int[] newOwners = Arrays.copyOf(owners, owners.length + 2);
+        newOwners[owners.length] = changeIndex;
+        newOwners[owners.length + 1] = fileIndex;
+        keyOwners.set(keyId, newOwners);
+      }
+      filePaths[changeIndex] = changeFilePaths.toArray(new String[0]);
+    }
+
+    return new FilePatternIndex(vcsChanges, filePaths, keyIds, keysWithoutExtension,
+                                keyOwners.toArray(new int[0][]));
+  }
+
+  public boolean isEmpty() {
+    return myKeyIds.isEmpty();
+  }
+
+  @NotNull
+  SVcsModification getVcsChange(final int changeIndex) {
+    return myVcsChanges.get(changeIndex);
+  }
+
+  /**
+   * @return ids of the keys which are mentioned in the problem text, the result can be accumulated over several
+   * texts and passed to {@link #getBrokenFiles(BitSet)}.
+   */
+  @NotNull
+  BitSet findMatches(@NotNull final CharSequence problemText) {
+    final BitSet matches = new BitSet();
+    if (isEmpty()) {
+      return matches;
+    }
+
+    StackTraceParser.parse(problemText, reference -> findKeys(reference, matches));
+    return matches;
+  }
+
+  /**
+   * Walks down the sorted keys from the reference itself: a key which is not a prefix of the reference leaves
+   * only the keys which are prefixes of their common part.
+   */
+  private void findKeys(@NotNull final String reference, @NotNull final BitSet matches) {
+    // a key must have the same parent directories and a non-empty file name
+    final int nameStart = reference.lastIndexOf('/') + 1;
+    String key = myKeyIds.floorKey(reference);
+    while (key != null && key.length() > nameStart) {
+      if (reference.startsWith(key)) {
+        final int keyId = myKeyIds.get(key);
+        if (isFileNameEnd(reference, key.length()) || myKeysWithoutExtension.get(keyId)) {
+          matches.set(keyId);
+        }
+        key = myKeyIds.lowerKey(key);
+      } else {
+        final int commonPrefixLength = getCommonPrefixLength(reference, key);
+        if (commonPrefixLength <= nameStart) break;
+        key = myKeyIds.floorKey(reference.substring(0, commonPrefixLength));
+      }
+    }
+  }
+
+  private static boolean isFileNameEnd(@NotNull final String reference, final int index) {
+    if (index == reference.length()) return true;
+
+    final char c = reference.charAt(index);
+    return c == '.' || c == '$' || c == ':' || c == '(';
+  }
+
+  private static boolean hasExtension(@NotNull final String filePath) {
+    final int nameStart = Math.max(filePath.lastIndexOf('/'), filePath.lastIndexOf('\\')) + 1;
+    return filePath.lastIndexOf('.') > nameStart;
+  }
+
+  private static int getCommonPrefixLength(@NotNull final String first, @NotNull final String second) {
+    final int length = Math.min(first.length(), second.length());
+    int i = 0;
+    while (i < length && first.charAt(i) == second.charAt(i)) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * @return for every change, the path of its first changed file which is among the matched keys or null
+   * if there is no such file.
+   */
+  @NotNull
+  String[] getBrokenFiles(@NotNull final BitSet matches) {
+    String[] brokenFiles = new String[myVcsChanges.size()];
+    if (matches.isEmpty()) {
+      return brokenFiles;
+    }
+
+    int[] firstFileIndexes = new int[myVcsChanges.size()];
+    Arrays.fill(firstFileIndexes, Integer.MAX_VALUE);
+    for (int keyId = matches.nextSetBit(0); keyId >= 0; keyId = matches.nextSetBit(keyId + 1)) {
+      int[] owners = myKeyOwners[keyId];
+      for (int i = 0; i < owners.length; i += 2) {
+        int changeIndex = owners[i];
+        firstFileIndexes[changeIndex] = Math.min(firstFileIndexes[changeIndex], owners[i + 1]);
+      }
+    }
+
+    for (int changeIndex = 0; changeIndex < brokenFiles.length; changeIndex++) {
+      if (firstFileIndexes[changeIndex] != Integer.MAX_VALUE) {
+        brokenFiles[changeIndex] = myFilePaths[changeIndex][firstFileIndexes[changeIndex]];
+      }
+    }
+    return brokenFiles;
+  }
+}
@@ -37,4 +37,31 @@ public interface Heuristic {
    * @param heuristicContext {@link HeuristicContext} object which presents known information about the problem.
    */
   HeuristicResult findResponsibleUser(@NotNull HeuristicContext heuristicContext);
+
+  /**
+   * Cheap check which allows to skip the heuristic when it is bound to find nobody for the context.
+   * Should not do more work than the {@link #findResponsibleUser(HeuristicContext)} would do before its first result.
+   * @param heuristicContext {@link HeuristicContext} object which presents known information about the problem.
+   * @return false if {@link #findResponsibleUser(HeuristicContext)} would return an empty result.
+   */
+  default boolean isApplicable(@NotNull HeuristicContext heuristicContext) {
+    return true;
+  }
+
+  /**
+   * @return relative cost of the {@link #findResponsibleUser(HeuristicContext)} call. The applicability of cheaper
+   * heuristics is checked first, the concurrent run submits the expensive heuristics first.
+   */
+  @NotNull
+  default Cost getCost() {
+    return Cost.MODERATE;
+  }
+
+  enum Cost {
+    // looks only through the data which is already in memory
+    CHEAP,
+    MODERATE,
+    // reads the build logs, the audit or other data from the disk or the database
+    EXPENSIVE
+  }
 }
@@ -21,11 +21,11 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.processing.BuildChangeContext;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.users.SUser;
 import jetbrains.buildServer.users.User;
-import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
 import org.jetbrains.annotations.NotNull;
 
 public class OneCommitterHeuristic implements Heuristic {
@@ -42,11 +42,11 @@ public class OneCommitterHeuristic implements Heuristic {
     HeuristicResult result = new HeuristicResult();
 
     SBuild build = heuristicContext.getBuild();
-    final SelectPrevBuildPolicy selectPrevBuildPolicy = SelectPrevBuildPolicy.SINCE_LAST_BUILD;
-    final Set<SUser> committers = build.getCommitters(selectPrevBuildPolicy).getUsers()
-                                       .stream()
-                                       .filter(user -> !heuristicContext.getUserFilter().contains(user.getUsername()))
-                                       .collect(Collectors.toSet());
+    final BuildChangeContext buildChangeContext = heuristicContext.getBuildChangeContext();
+    final Set<SUser> committers = buildChangeContext.getCommitters()
+                                                    .stream()
+                                                    .filter(user -> !buildChangeContext.isIgnored(user))
+                                                    .collect(Collectors.toSet());
 
     if (committers.isEmpty()) {
       LOGGER.debug("There are no committers since last build for failed build #" + build.getBuildId());
@@ -69,4 +69,20 @@ public class OneCommitterHeuristic implements Heuristic {
 
     return result;
   }
+
+  @Override
+  public boolean isApplicable(@NotNull HeuristicContext heuristicContext) {
+    final BuildChangeContext buildChangeContext = heuristicContext.getBuildChangeContext();
+    return buildChangeContext.getCommitters()
+                             .stream()
+                             .filter(user -> !buildChangeContext.isIgnored(user))
+                             .limit(2)
+                             .count() == 1;
+  }
+
+  @NotNull
+  @Override
+  public Cost getCost() {
+    return Cost.CHEAP;
+  }
 }
\ No newline at end of file
@@ -16,10 +16,13 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import com.intellij.openapi.diagnostic.Logger;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.persistent.PreviousResponsibleIndex;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
 import jetbrains.buildServer.serverSide.SBuild;
@@ -35,9 +38,12 @@ public class PreviousResponsibleHeuristic implements Heuristic {
 
   private static final Logger LOGGER = Logger.getInstance(PreviousResponsibleHeuristic.class.getName());
   private InvestigationsManager myInvestigationsManager;
+  private final PreviousResponsibleIndex myPreviousResponsibleIndex;
 
-  public PreviousResponsibleHeuristic(InvestigationsManager investigationsManager) {
+  public PreviousResponsibleHeuristic(InvestigationsManager investigationsManager,
+                                      PreviousResponsibleIndex previousResponsibleIndex) {
     myInvestigationsManager = investigationsManager;
+    myPreviousResponsibleIndex = previousResponsibleIndex;
   }
 
   @NotNull
@@ -46,20 +52,49 @@ public class PreviousResponsibleHeuristic implements Heuristic {
     return "Previous Responsible Heuristic";
   }
 
+  @NotNull
+  @Override
+  public Cost getCost() {
+    return Cost.EXPENSIVE;
+  }
+
   public HeuristicResult findResponsibleUser(@NotNull HeuristicContext heuristicContext) {
     HeuristicResult result = new HeuristicResult();
     SBuild sBuild = heuristicContext.getBuild();
     SProject sProject = heuristicContext.getProject();
-    Iterable<STestRun> sTestRuns = heuristicContext.getTestRuns();
-
-    HashMap<Long, User> testId2Responsible = myInvestigationsManager.findInAudit(sTestRuns, sProject);
-    for (STestRun sTestRun : heuristicContext.getTestRuns()) {
+    List<STestRun> sTestRuns = heuristicContext.getTestRuns();
+
+    // the investigations and the audit are looked through only for the tests which are not in the index yet,
+    // only the audit results are remembered as the found investigations depend on the build
+    User[] responsibleUsers = new User[sTestRuns.size()];
+    boolean[] toFindInAudit = new boolean[sTestRuns.size()];
+    List<STestRun> testRunsToFindInAudit = new ArrayList<>();
+    for (int i = 0; i < sTestRuns.size(); i++) {
+      STestRun sTestRun = sTestRuns.get(i);
       STest sTest = sTestRun.getTest();
+      if (myPreviousResponsibleIndex.containsTest(sProject, sTest.getName())) {
+        responsibleUsers[i] = myPreviousResponsibleIndex.findTestResponsible(sProject, sTest.getName());
+        continue;
+      }
+
+      responsibleUsers[i] = myInvestigationsManager.findPreviousResponsible(sProject, sBuild, sTest);
+      if (responsibleUsers[i] == null) {
+        toFindInAudit[i] = true;
+        testRunsToFindInAudit.add(sTestRun);
+      }
+    }
 
-      User responsibleUser = myInvestigationsManager.findPreviousResponsible(sProject, sBuild, sTest);
+    HashMap<Long, User> testId2Responsible = testRunsToFindInAudit.isEmpty() ?
+                                             new HashMap<>() :
+                                             myInvestigationsManager.findInAudit(testRunsToFindInAudit, sProject);
+    for (int i = 0; i < sTestRuns.size(); i++) {
+      STestRun sTestRun = sTestRuns.get(i);
+      STest sTest = sTestRun.getTest();
 
-      if (responsibleUser == null) {
+      User responsibleUser = responsibleUsers[i];
+      if (toFindInAudit[i]) {
         responsibleUser = testId2Responsible.get(sTest.getTestNameId());
+        myPreviousResponsibleIndex.rememberTestResponsible(sProject, sTest.getName(), responsibleUser);
       }
 
       if (responsibleUser != null && heuristicContext.getUserFilter().contains(responsibleUser.getUsername())) {
@@ -78,7 +113,16 @@ public class PreviousResponsibleHeuristic implements Heuristic {
     }
 
     for (BuildProblem buildProblem : heuristicContext.getBuildProblems()) {
-      User responsibleUser = myInvestigationsManager.findPreviousResponsible(sProject, sBuild, buildProblem);
+      User responsibleUser;
+      if (myPreviousResponsibleIndex.containsBuildProblem(sProject, buildProblem.getId())) {
+        responsibleUser = myPreviousResponsibleIndex.findBuildProblemResponsible(sProject, buildProblem.getId());
+      } else {
+        responsibleUser = myInvestigationsManager.findAmongEntries(sProject, sBuild, buildProblem);
+        if (responsibleUser == null) {
+          responsibleUser = myInvestigationsManager.findInAudit(buildProblem);
+          myPreviousResponsibleIndex.rememberBuildProblemResponsible(sProject, buildProblem.getId(), responsibleUser);
+        }
+      }
       if (responsibleUser != null && heuristicContext.getUserFilter().contains(responsibleUser.getUsername())) {
         LOGGER.debug(
           String.format("Build %s: Found PreviousResponsibleHeuristic for user `%s` from black list. Skip him.",
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Extracts references to source files from failure texts and reports them as the keys of {@link FilePatternIndex}.
+ * Supported references are paths from compiler messages and Python, JavaScript or .NET stack traces
+ * ({@code /src/app/main.py}, {@code C:\src\App\Program.cs}), qualified names ({@code com.foo.Bar.method})
+ * and JVM stack frames ({@code at com.foo.BarKt.method(Bar.kt:10)}). A single word like {@code Utils} is never
+ * a reference.
+ */
+final class StackTraceParser {
+  private StackTraceParser() {
+  }
+
+  /**
+   * Key of a changed file: the file name for a file in the root directory, otherwise the name without extension
+   * with up to two parent directories joined by '/'.
+   */
+  @Nullable
+  static String getFileKey(@NotNull final String filePath) {
+    final List<String> segments = splitPath(filePath);
+    if (segments.isEmpty()) return null;
+
+    final int size = segments.size();
+    final String fileName = segments.get(size - 1);
+    final String name = getNameWithoutExtension(fileName);
+    if (name.isEmpty()) return null;
+
+    switch (size) {
+      case 1:
+        return fileName;
+      case 2:
+        return segments.get(0) + '/' + name;
+      default:
+        return segments.get(size - 3) + '/' + segments.get(size - 2) + '/' + name;
+    }
+  }
+
+  static void parse(@NotNull final CharSequence text, @NotNull final Consumer<String> keys) {
+    final StringBuilder word = new StringBuilder();
+    List<String> frameClass = null;
+    final int length = text.length();
+    for (int i = 0; i <= length; i++) {
+      final char c = i < length ? text.charAt(i) : ' ';
+      if (isWordChar(c)) {
+        word.append(c);
+        continue;
+      }
+      if (word.length() == 0) continue;
+
+      final String reference = trimWord(word);
+      word.setLength(0);
+      if (reference.isEmpty()) continue;
+
+      if (reference.indexOf('/') >= 0 || reference.indexOf('\\') >= 0) {
+        parsePath(reference, keys);
+        frameClass = null;
+      } else if (reference.indexOf('.') >= 0) {
+        final List<String> segments = splitQualifiedName(reference);
+        if (frameClass != null && segments.size() == 2) {
+          // "at com.foo.BarKt.method(Bar.kt:10)": the source file is in the package of the class
+          parseFrame(frameClass, segments.get(0), keys);
+        }
+        parseQualifiedName(reference, segments, keys);
+        frameClass = c == '(' && segments.size() > 2 ? segments : null;
+      } else {
+        frameClass = null;
+      }
+    }
+  }
+
+  private static void parsePath(@NotNull final String path, @NotNull final Consumer<String> keys) {
+    final List<String> segments = splitPath(path);
+    if (segments.isEmpty()) return;
+
+    final int size = segments.size();
+    final String fileName = segments.get(size - 1);
+    final String name = getNameWithoutExtension(fileName);
+    if (name.isEmpty()) return;
+
+    keys.accept(fileName);
+    if (size > 1) {
+      keys.accept(segments.get(size - 2) + '/' + name);
+    }
+    if (size > 2) {
+      keys.accept(segments.get(size - 3) + '/' + segments.get(size - 2) + '/' + name);
+    }
+  }
+
+  private static void parseQualifiedName(@NotNull final String qualifiedName,
+                                         @NotNull final List<String> segments,
+                                         @NotNull final Consumer<String> keys) {
+    if (segments.size() == 2) {
+      keys.accept(qualifiedName);
+    }
+    for (int i = 0; i + 1 < segments.size(); i++) {
+      keys.accept(segments.get(i) + '/' + segments.get(i + 1));
+      if (i + 2 < segments.size()) {
+        keys.accept(segments.get(i) + '/' + segments.get(i + 1) + '/' + segments.get(i + 2));
+      }
+    }
+  }
+
+  private static void parseFrame(@NotNull final List<String> frameClass,
+                                 @NotNull final String fileName,
+                                 @NotNull final Consumer<String> keys) {
+    // the last two segments are the class and the method
+    final int packageSize = frameClass.size() - 2;
+    if (packageSize >= 1) {
+      keys.accept(frameClass.get(packageSize - 1) + '/' + fileName);
+    }
+    if (packageSize >= 2) {
+      keys.accept(frameClass.get(packageSize - 2) + '/' + frameClass.get(packageSize - 1) + '/' + fileName);
+    }
+  }
+
+  @NotNull
+  private static List<String> splitPath(@NotNull final String path) {
+    final List<String> segments = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i <= path.length(); i++) {
+      if (i == path.length() || path.charAt(i) == '/' || path.charAt(i) == '\\') {
+        final String segment = path.substring(start, i);
+        if (!segment.isEmpty() && !segment.equals(".") && !segment.equals("..")) {
+          segments.add(segment);
+        }
+        start = i + 1;
+      }
+    }
+    return segments;
+  }
+
+  // "com.foo.Bar$Inner.method" -> [com, foo, Bar, method]
+  @NotNull
+  private static List<String> splitQualifiedName(@NotNull final String qualifiedName) {
+    final List<String> segments = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i <= qualifiedName.length(); i++) {
+      if (i == qualifiedName.length() || qualifiedName.charAt(i) == '.') {
+        String segment = qualifiedName.substring(start, i);
+        final int innerClassStart = segment.indexOf('$');
+        if (innerClassStart >= 0) {
+          segment = segment.substring(0, innerClassStart);
+        }
+        if (!segment.isEmpty()) {
+          segments.add(segment);
+        }
+        start = i + 1;
+      }
+    }
+    return segments;
+  }
+
+  @NotNull
+  private static String getNameWithoutExtension(@NotNull final String fileName) {
+    final int extensionStart = fileName.lastIndexOf('.');
+    return extensionStart < 0 ? fileName : fileName.substring(0, extensionStart);
+  }
+
+  @NotNull
+  private static String trimWord(@NotNull final StringBuilder word) {
+    int end = word.length();
+    while (end > 0 && (word.charAt(end - 1) == '.' || word.charAt(end - 1) == '-')) {
+      end--;
+    }
+    return word.substring(0, end);
+  }
+
+  private static boolean isWordChar(final char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '-' || c == '.' || c == '/' || c == '\\';
+  }
+}
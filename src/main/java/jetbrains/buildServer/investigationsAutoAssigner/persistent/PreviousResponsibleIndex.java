@@ -0,0 +1,333 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import com.intellij.openapi.diagnostic.Logger;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import jetbrains.buildServer.BuildProject;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.responsibility.ResponsibilityEntry;
+import jetbrains.buildServer.serverSide.SProject;
+import jetbrains.buildServer.serverSide.ServerPaths;
+import jetbrains.buildServer.serverSide.executors.ExecutorServices;
+import jetbrains.buildServer.serverSide.problems.BuildProblemInfo;
+import jetbrains.buildServer.tests.TestName;
+import jetbrains.buildServer.users.User;
+import jetbrains.buildServer.users.UserModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationKeys.getBuildProblemKey;
+import static jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationKeys.getTestKey;
+
+/**
+ * Last responsible users of the tests and build problems by project. The index is updated by the responsibility
+ * events, so the previous responsible is found without looking through the investigations and the audit.
+ * A test or a problem without events is looked up in the audit once and the result is remembered
+ * (see {@link #rememberTestResponsible}): a found user is kept with the events, while the fact that nobody was found
+ * is kept in memory only for a limited time. The index is kept in the plugin data directory between server restarts,
+ * the changes are appended to the file and it is rewritten only when most of its records are outdated.
+ */
+public class PreviousResponsibleIndex {
+  private static final Logger LOGGER = Logger.getInstance(PreviousResponsibleIndex.class.getName());
+  private static final int FORMAT_VERSION = 2;
+  // marks a removed key in the file
+  private static final long NOBODY = -1;
+  // longer keys do not fit into the modified UTF-8 strings of DataOutput
+  private static final int MAX_KEY_LENGTH = 16 * 1024;
+  private static final int MAX_SIZE = 100_000;
+  private static final int MAX_MISSES = 10_000;
+  private static final long MISS_TTL_MS = TimeUnit.HOURS.toMillis(1);
+  // the file is rewritten when it has more outdated records than this number plus the number of the actual ones
+  private static final int COMPACTION_SLACK = 10_000;
+
+  @NotNull private final UserModel myUserModel;
+  @NotNull private final Path myPluginDataDirectory;
+  @NotNull private final Path myIndexPath;
+  // key -> {user id, time of the change}, values are replaced but never modified
+  @NotNull private final ConcurrentHashMap<String, long[]> myResponsibles = new ConcurrentHashMap<>();
+  // keys which were looked up in the audit without result -> time of the lookup, the eldest ones are dropped first
+  @NotNull private final Map<String, Long> myMisses = new LinkedHashMap<String, Long>() {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+      return size() > MAX_MISSES;
+    }
+  };
+  // keys changed since the last save
+  @NotNull private final Set<String> myChangedKeys = ConcurrentHashMap.newKeySet();
+  // accessed by the constructor and the save task only
+  private int myRecordsInFile;
+
+  public PreviousResponsibleIndex(@NotNull final ServerPaths serverPaths,
+                                  @NotNull final ExecutorServices executorServices,
+                                  @NotNull final UserModel userModel) {
+    myUserModel = userModel;
+    myPluginDataDirectory =
+      Paths.get(serverPaths.getPluginDataDirectory().getPath()).resolve(Constants.PLUGIN_DATA_DIR);
+    myIndexPath = myPluginDataDirectory.resolve(Constants.PREVIOUS_RESPONSIBLE_INDEX_FILE_NAME);
+    read();
+    int delayInSeconds = CustomParameters.getProcessingDelayInSeconds();
+    executorServices
+      .getNormalExecutorService()
+      .scheduleWithFixedDelay(this::saveDataOnDisk, delayInSeconds, delayInSeconds, TimeUnit.SECONDS);
+  }
+
+  public void testsResponsibleChanged(@NotNull final SProject project,
+                                      @NotNull final Collection<TestName> testNames,
+                                      @Nullable final ResponsibilityEntry entry) {
+    final Long userId = getResponsibleUserId(entry);
+    if (userId == null) return;
+
+    for (TestName testName : testNames) {
+      put(getTestKey(project.getProjectId(), testName), userId, entry.getTimestamp().getTime());
+    }
+  }
+
+  public void buildProblemsResponsibleChanged(@NotNull final SProject project,
+                                              @NotNull final Collection<BuildProblemInfo> buildProblems,
+                                              @Nullable final ResponsibilityEntry entry) {
+    final Long userId = getResponsibleUserId(entry);
+    if (userId == null) return;
+
+    for (BuildProblemInfo buildProblem : buildProblems) {
+      put(getBuildProblemKey(project.getProjectId(), buildProblem.getId()), userId, entry.getTimestamp().getTime());
+    }
+  }
+
+  /**
+   * @return true if the previous responsible of the test is known, including the recent audit lookups which found
+   * nobody.
+   */
+  public boolean containsTest(@NotNull final SProject project, @NotNull final TestName testName) {
+    return findNewest(project, projectId -> getTestKey(projectId, testName)) != null ||
+           isRecentMiss(getTestKey(project.getProjectId(), testName));
+  }
+
+  @Nullable
+  public User findTestResponsible(@NotNull final SProject project, @NotNull final TestName testName) {
+    return toUser(findNewest(project, projectId -> getTestKey(projectId, testName)));
+  }
+
+  /**
+   * Remembers the previous responsible found in the audit, it is overridden by any responsibility event.
+   */
+  public void rememberTestResponsible(@NotNull final SProject project,
+                                      @NotNull final TestName testName,
+                                      @Nullable final User responsible) {
+    remember(getTestKey(project.getProjectId(), testName), responsible);
+  }
+
+  public boolean containsBuildProblem(@NotNull final SProject project, final int buildProblemId) {
+    return findNewest(project, projectId -> getBuildProblemKey(projectId, buildProblemId)) != null ||
+           isRecentMiss(getBuildProblemKey(project.getProjectId(), buildProblemId));
+  }
+
+  @Nullable
+  public User findBuildProblemResponsible(@NotNull final SProject project, final int buildProblemId) {
+    return toUser(findNewest(project, projectId -> getBuildProblemKey(projectId, buildProblemId)));
+  }
+
+  public void rememberBuildProblemResponsible(@NotNull final SProject project,
+                                              final int buildProblemId,
+                                              @Nullable final User responsible) {
+    remember(getBuildProblemKey(project.getProjectId(), buildProblemId), responsible);
+  }
+
+  @Nullable
+  private static Long getResponsibleUserId(@Nullable final ResponsibilityEntry entry) {
+    if (entry == null) return null;
+
+    final ResponsibilityEntry.State state = entry.getState();
+    if (state != ResponsibilityEntry.State.TAKEN && !state.isFixed()) return null;
+
+    return entry.getResponsibleUser().getId();
+  }
+
+  private void put(@NotNull final String key, final long userId, final long timestamp) {
+    if (key.length() > MAX_KEY_LENGTH) return;
+
+    myResponsibles.put(key, new long[]{userId, timestamp});
+    myChangedKeys.add(key);
+  }
+
+  private void remember(@NotNull final String key, @Nullable final User responsible) {
+    if (key.length() > MAX_KEY_LENGTH) return;
+
+    if (responsible == null) {
+      synchronized (myMisses) {
+        myMisses.put(key, System.currentTimeMillis());
+      }
+      return;
+    }
+
+    // zero time makes it older than any event
+    if (myResponsibles.putIfAbsent(key, new long[]{responsible.getId(), 0}) == null) {
+      myChangedKeys.add(key);
+    }
+  }
+
+  private boolean isRecentMiss(@NotNull final String key) {
+    synchronized (myMisses) {
+      final Long lookupTime = myMisses.get(key);
+      if (lookupTime == null) return false;
+
+      if (System.currentTimeMillis() - lookupTime > MISS_TTL_MS) {
+        myMisses.remove(key);
+        return false;
+      }
+      return true;
+    }
+  }
+
+  @Nullable
+  private long[] findNewest(@NotNull final SProject project, @NotNull final Function<String, String> keyByProjectId) {
+    long[] newest = null;
+    for (BuildProject current = project; current != null; current = current.getParentProject()) {
+      final long[] value = myResponsibles.get(keyByProjectId.apply(current.getProjectId()));
+      if (value != null && (newest == null || value[1] > newest[1])) {
+        newest = value;
+      }
+    }
+    return newest;
+  }
+
+  @Nullable
+  private User toUser(@Nullable final long[] value) {
+    if (value == null) return null;
+
+    return myUserModel.findUserById(value[0]);
+  }
+
+  private void read() {
+    if (!Files.exists(myIndexPath)) return;
+
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(myIndexPath)))) {
+      if (input.readInt() != FORMAT_VERSION) {
+        // the file of another format is replaced on the first save
+        myRecordsInFile = Integer.MAX_VALUE;
+        return;
+      }
+
+      while (input.available() > 0) {
+        final String key = input.readUTF();
+        final long userId = input.readLong();
+        final long timestamp = input.readLong();
+        myRecordsInFile++;
+        if (userId == NOBODY) {
+          myResponsibles.remove(key);
+        } else {
+          myResponsibles.put(key, new long[]{userId, timestamp});
+        }
+      }
+    } catch (EOFException ex) {
+      // the last append was interrupted, the read records are kept and the file is rewritten on the next save
+      myRecordsInFile = Integer.MAX_VALUE;
+    } catch (IOException ex) {
+      LOGGER.warn("Cannot read the previous responsible index from " + myIndexPath + ", it will be rebuilt", ex);
+      myResponsibles.clear();
+      myRecordsInFile = Integer.MAX_VALUE;
+    }
+  }
+
+  private void saveDataOnDisk() {
+    evictOldest();
+    if (myChangedKeys.isEmpty() && myRecordsInFile != Integer.MAX_VALUE) return;
+
+    final List<String> changedKeys = new ArrayList<>(myChangedKeys);
+    myChangedKeys.removeAll(changedKeys);
+    try {
+      if (!Files.exists(myPluginDataDirectory)) {
+        Files.createDirectory(myPluginDataDirectory);
+      }
+
+      if (!Files.exists(myIndexPath) || myRecordsInFile - myResponsibles.size() > COMPACTION_SLACK) {
+        rewrite();
+      } else {
+        append(changedKeys);
+      }
+    } catch (IOException ex) {
+      myChangedKeys.addAll(changedKeys);
+      // the file may end with a part of a record
+      myRecordsInFile = Integer.MAX_VALUE;
+      LOGGER.warn("Cannot save the previous responsible index to " + myIndexPath, ex);
+    }
+  }
+
+  private void append(@NotNull final List<String> changedKeys) throws IOException {
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+      Files.newOutputStream(myIndexPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+      for (String key : changedKeys) {
+        final long[] value = myResponsibles.get(key);
+        output.writeUTF(key);
+        output.writeLong(value != null ? value[0] : NOBODY);
+        output.writeLong(value != null ? value[1] : 0);
+      }
+    }
+    myRecordsInFile += changedKeys.size();
+  }
+
+  private void rewrite() throws IOException {
+    final Path tempPath = myPluginDataDirectory.resolve(Constants.PREVIOUS_RESPONSIBLE_INDEX_FILE_NAME + ".tmp");
+    final Map<String, long[]> snapshot = new HashMap<>(myResponsibles);
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+      output.writeInt(FORMAT_VERSION);
+      for (Map.Entry<String, long[]> entry : snapshot.entrySet()) {
+        output.writeUTF(entry.getKey());
+        output.writeLong(entry.getValue()[0]);
+        output.writeLong(entry.getValue()[1]);
+      }
+    }
+    Files.move(tempPath, myIndexPath, StandardCopyOption.REPLACE_EXISTING);
+    myRecordsInFile = snapshot.size();
+  }
+
+  // the responsibles remembered from the audit go first as they are older than any event
+  private void evictOldest() {
+    final int excess = myResponsibles.size() - MAX_SIZE;
+    if (excess <= 0) return;
+
+    final List<Map.Entry<String, long[]>> entries = new ArrayList<>(myResponsibles.entrySet());
+    entries.sort(Comparator.comparingLong(entry -> entry.getValue()[1]));
+    // some room is left, so the eviction does not happen on every save
+    for (Map.Entry<String, long[]> entry : entries.subList(0, Math.min(entries.size(), excess + MAX_SIZE / 10))) {
+      myResponsibles.remove(entry.getKey(), entry.getValue());
+      myChangedKeys.add(entry.getKey());
+    }
+  }
+}
@@ -19,6 +19,7 @@ package jetbrains.buildServer.investigationsAutoAssigner.persistent;
 import java.util.concurrent.TimeUnit;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
 import jetbrains.buildServer.serverSide.TeamCityProperties;
 import jetbrains.buildServer.serverSide.executors.ExecutorServices;
 import jetbrains.buildServer.util.StringUtil;
@@ -81,6 +82,7 @@ public class StatisticsReporter {
                          myStatistics.get(StatisticsValuesEnum.shownButtonsCount),
                          myStatistics.get(StatisticsValuesEnum.clickedButtonsCount),
                          myStatistics.get(StatisticsValuesEnum.buildWithSuggestionsCount),
-                         myStatistics.get(StatisticsValuesEnum.savedSuggestionsCount));
+                         myStatistics.get(StatisticsValuesEnum.savedSuggestionsCount)) +
+           "\n" + PerformanceMetrics.generateReport();
   }
 }
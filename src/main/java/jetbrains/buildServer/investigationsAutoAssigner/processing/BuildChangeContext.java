@@ -0,0 +1,111 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import jetbrains.buildServer.investigationsAutoAssigner.heuristics.FilePatternIndex;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.BuildFeatureSettings;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.users.SUser;
+import jetbrains.buildServer.users.User;
+import jetbrains.buildServer.vcs.SVcsModification;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Changes of a build since the last build and the data derived from them. It is created once per processing pass
+ * of a build and shared by the heuristics and the assigners, every VCS model query is made lazily at most once.
+ * The change related data may also be shared with other builds of the same revision range, see {@link ChangeSetCache}.
+ */
+public final class BuildChangeContext {
+  @NotNull private final SBuild mySBuild;
+  @NotNull private final ChangeSet myChangeSet;
+  @Nullable private Set<String> myUsersToIgnore;
+  @Nullable private BuildFeatureSettings myBuildFeatureSettings;
+
+  public BuildChangeContext(@NotNull final SBuild sBuild) {
+    this(sBuild, new ChangeSet());
+  }
+
+  BuildChangeContext(@NotNull final SBuild sBuild, @NotNull final ChangeSet changeSet) {
+    mySBuild = sBuild;
+    myChangeSet = changeSet;
+  }
+
+  BuildChangeContext(@NotNull final SBuild sBuild, @NotNull final Collection<String> usersToIgnore) {
+    this(sBuild);
+    myUsersToIgnore = new HashSet<>(usersToIgnore);
+  }
+
+  @NotNull
+  public SBuild getBuild() {
+    return mySBuild;
+  }
+
+  /**
+   * @return detected changes of the build since the last build, empty if they are not available.
+   */
+  @NotNull
+  public List<SVcsModification> getChanges() {
+    return myChangeSet.getChanges(mySBuild);
+  }
+
+  /**
+   * @return all committers of the build since the last build including the ignored ones.
+   */
+  @NotNull
+  public Set<SUser> getCommitters() {
+    return myChangeSet.getCommitters(mySBuild);
+  }
+
+  @NotNull
+  public Set<Long> getCommittersIds() {
+    return myChangeSet.getCommittersIds(mySBuild);
+  }
+
+  @NotNull
+  public FilePatternIndex getFilePatternIndex() {
+    return myChangeSet.getFilePatternIndex(mySBuild);
+  }
+
+  /**
+   * @return settings of the build feature, they are read from the build once per processing pass.
+   */
+  @NotNull
+  public synchronized BuildFeatureSettings getBuildFeatureSettings() {
+    if (myBuildFeatureSettings == null) {
+      myBuildFeatureSettings = CustomParameters.getBuildFeatureSettings(mySBuild);
+    }
+    return myBuildFeatureSettings;
+  }
+
+  @NotNull
+  public synchronized Set<String> getUsersToIgnore() {
+    if (myUsersToIgnore == null) {
+      myUsersToIgnore = getBuildFeatureSettings().getUsersToIgnore();
+    }
+    return myUsersToIgnore;
+  }
+
+  public boolean isIgnored(@NotNull final User user) {
+    return getUsersToIgnore().contains(user.getUsername());
+  }
+}
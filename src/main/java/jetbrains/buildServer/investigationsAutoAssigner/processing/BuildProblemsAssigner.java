@@ -27,7 +27,6 @@ import jetbrains.buildServer.investigationsAutoAssigner.persistent.StatisticsRep
 import jetbrains.buildServer.responsibility.BuildProblemResponsibilityFacade;
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
 import jetbrains.buildServer.responsibility.ResponsibilityEntryEx;
-import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.WebLinks;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
@@ -52,7 +51,7 @@ public class BuildProblemsAssigner extends BaseAssigner {
 
   void assign(final HeuristicResult heuristicsResult,
               final SProject sProject,
-              final SBuild sBuild,
+              final BuildChangeContext buildChangeContext,
               final List<BuildProblem> buildProblems) {
     if (heuristicsResult.isEmpty()) return;
 
@@ -64,7 +63,7 @@ public class BuildProblemsAssigner extends BaseAssigner {
       buildProblemList.add(buildProblem);
     }
 
-    Set<Long> committersIds = calculateCommitersIds(sBuild);
+    Set<Long> committersIds = buildChangeContext.getCommittersIds();
 
     Set<Responsibility> uniqueResponsibilities = responsibilityToBuildProblem.keySet();
     for (Responsibility responsibility : uniqueResponsibilities) {
@@ -75,7 +74,7 @@ public class BuildProblemsAssigner extends BaseAssigner {
                                   responsibility.getDescription()));
         List<BuildProblemInfo> buildProblemList = responsibilityToBuildProblem.get(responsibility);
 
-        String linkToBuild = myWebLinks.getViewResultsUrl(sBuild);
+        String linkToBuild = myWebLinks.getViewResultsUrl(buildChangeContext.getBuild());
         myBuildProblemResponsibilityFacade.setBuildProblemResponsibility(
           buildProblemList,
           sProject.getProjectId(),
@@ -27,6 +27,7 @@ import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -53,11 +54,11 @@ public class BuildProblemsFilter {
       LOGGER.debug(String.format("Filtering of build problems for build id:%s started", sBuild.getBuildId()));
     }
 
-    List<BuildProblem> filteredBuildProblems = buildProblems.stream()
-                                                            .filter(failedBuildInfo::checkNotProcessed)
-                                                            .filter(problem -> isApplicable(sProject, sBuild, problem))
-                                                            .limit(failedBuildInfo.getLimitToProcess())
-                                                            .collect(Collectors.toList());
+    List<BuildProblem> notProcessedBuildProblems = buildProblems.stream()
+                                                                .filter(failedBuildInfo::checkNotProcessed)
+                                                                .collect(Collectors.toList());
+    List<BuildProblem> filteredBuildProblems =
+      filterApplicable(failedBuildInfo, sProject, notProcessedBuildProblems, failedBuildInfo.getLimitToProcess());
 
     failedBuildInfo.addProcessedBuildProblems(buildProblems);
     failedBuildInfo.increaseProcessedNumber(filteredBuildProblems.size());
@@ -74,26 +75,60 @@ public class BuildProblemsFilter {
       LOGGER.debug(String.format("Filtering before assign of build problems for build id:%s started", sBuild.getBuildId()));
     }
 
-    return allBuildProblems.stream()
-                           .filter(buildProblem -> isApplicable(sProject, sBuild, buildProblem))
-                           .collect(Collectors.toList());
+    return filterApplicable(failedBuildInfo, sProject, allBuildProblems, Integer.MAX_VALUE);
   }
 
-  private boolean isApplicable(@NotNull final SProject project,
-                               @NotNull final SBuild sBuild,
-                               @NotNull final BuildProblem problem) {
-    String reason = null;
-    if (problem.isMuted()) {
-      reason = "is muted";
-    } else if (!myBuildProblemUtils.isNew(problem)) {
-      reason = "occurs not for the first time";
-    } else if (!supportedTypes.contains(problem.getBuildProblemData().getType())) {
-      reason = String.format("has an unsupported type %s. Supported types: %s",
-                             problem.getBuildProblemData().getType(), supportedTypes);
-    } else if (myInvestigationsManager.checkUnderInvestigation(project, sBuild, problem)) {
-      reason = "is already under an investigation";
+  @NotNull
+  private List<BuildProblem> filterApplicable(@NotNull final FailedBuildInfo failedBuildInfo,
+                                              @NotNull final SProject project,
+                                              @NotNull final List<BuildProblem> buildProblems,
+                                              final int limit) {
+    SBuild sBuild = failedBuildInfo.getBuild();
+    List<BuildProblem> candidates = new ArrayList<>();
+    for (BuildProblem problem : buildProblems) {
+      String reason = null;
+      if (problem.isMuted()) {
+        reason = "is muted";
+      } else if (!myBuildProblemUtils.isNew(failedBuildInfo, problem)) {
+        reason = "occurs not for the first time";
+      } else if (!supportedTypes.contains(problem.getBuildProblemData().getType())) {
+        reason = String.format("has an unsupported type %s. Supported types: %s",
+                               problem.getBuildProblemData().getType(), supportedTypes);
+      }
+
+      if (reason == null) {
+        candidates.add(problem);
+      } else {
+        logApplicability(sBuild, problem, reason);
+      }
+    }
+
+    List<BuildProblem> result = new ArrayList<>();
+    if (candidates.isEmpty() || limit <= 0) {
+      return result;
     }
 
+    // candidates are checked in chunks of the limit size, a chunk is checked only if the limit is not reached yet
+    for (int from = 0; from < candidates.size() && result.size() < limit; ) {
+      final int to = from + Math.min(candidates.size() - from, limit);
+      List<BuildProblem> chunk = candidates.subList(from, to);
+      BitSet underInvestigation = myInvestigationsManager.checkProblemsUnderInvestigation(project, sBuild, chunk);
+      for (int i = 0; i < chunk.size() && result.size() < limit; i++) {
+        final BuildProblem problem = chunk.get(i);
+        String reason = underInvestigation.get(i) ? "is already under an investigation" : null;
+        logApplicability(sBuild, problem, reason);
+        if (reason == null) {
+          result.add(problem);
+        }
+      }
+      from = to;
+    }
+    return result;
+  }
+
+  private static void logApplicability(@NotNull final SBuild sBuild,
+                                       @NotNull final BuildProblem problem,
+                                       @Nullable final String reason) {
     boolean isApplicable = reason == null;
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug(String.format("Build problem id:%s:%s is %s.%s",
@@ -103,7 +138,5 @@ public class BuildProblemsFilter {
                                  (isApplicable ? "" : String.format(" Reason: this build problem %s.", reason))
       ));
     }
-
-    return isApplicable;
   }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jetbrains.buildServer.investigationsAutoAssigner.heuristics.FilePatternIndex;
+import jetbrains.buildServer.serverSide.BuildPromotion;
+import jetbrains.buildServer.serverSide.BuildPromotionEx;
+import jetbrains.buildServer.serverSide.ChangeDescriptor;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.users.SUser;
+import jetbrains.buildServer.users.User;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Data computed from the changes of a build since the last build. Builds with the same revision range
+ * share one instance via {@link ChangeSetCache}, so every value is computed by the first build which needs it.
+ */
+final class ChangeSet {
+  static final SelectPrevBuildPolicy PREV_BUILD_POLICY = SelectPrevBuildPolicy.SINCE_LAST_BUILD;
+
+  @Nullable private List<SVcsModification> myChanges;
+  @Nullable private Set<SUser> myCommitters;
+  @Nullable private Set<Long> myCommittersIds;
+  @Nullable private FilePatternIndex myFilePatternIndex;
+
+  @NotNull
+  synchronized List<SVcsModification> getChanges(@NotNull final SBuild sBuild) {
+    if (myChanges == null) {
+      final BuildPromotion buildPromotion = sBuild.getBuildPromotion();
+      myChanges = buildPromotion instanceof BuildPromotionEx ?
+                  ((BuildPromotionEx)buildPromotion).getDetectedChanges(PREV_BUILD_POLICY, false)
+                                                    .stream()
+                                                    .map(ChangeDescriptor::getRelatedVcsChange)
+                                                    .filter(Objects::nonNull)
+                                                    .collect(Collectors.toList()) :
+                  Collections.emptyList();
+    }
+    return myChanges;
+  }
+
+  @NotNull
+  synchronized Set<SUser> getCommitters(@NotNull final SBuild sBuild) {
+    if (myCommitters == null) {
+      myCommitters = sBuild.getCommitters(PREV_BUILD_POLICY).getUsers();
+    }
+    return myCommitters;
+  }
+
+  @NotNull
+  synchronized Set<Long> getCommittersIds(@NotNull final SBuild sBuild) {
+    if (myCommittersIds == null) {
+      myCommittersIds = getCommitters(sBuild).stream().map(User::getId).collect(Collectors.toSet());
+    }
+    return myCommittersIds;
+  }
+
+  @NotNull
+  synchronized FilePatternIndex getFilePatternIndex(@NotNull final SBuild sBuild) {
+    if (myFilePatternIndex == null) {
+      myFilePatternIndex = FilePatternIndex.create(getChanges(sBuild));
+    }
+    return myFilePatternIndex;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.*;
+import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetric;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
+import jetbrains.buildServer.serverSide.BuildPromotion;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.vcs.BuildRevision;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bounded LRU cache of {@link ChangeSet}s keyed by the VCS roots, checkout rules and revision ranges of a build.
+ * Build configurations which build the same commits from the same VCS roots tend to fail together;
+ * with the cache they resolve the changes, the committers and the file patterns only once.
+ */
+public class ChangeSetCache {
+  private static final Logger LOGGER = Logger.getInstance(ChangeSetCache.class.getName());
+  private final int myMaxSize;
+  private final LinkedHashMap<String, ChangeSet> myChangeSets;
+
+  public ChangeSetCache() {
+    this(CustomParameters.getChangeSetCacheSize());
+  }
+
+  ChangeSetCache(final int maxSize) {
+    myMaxSize = maxSize;
+    myChangeSets = new LinkedHashMap<String, ChangeSet>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, ChangeSet> eldest) {
+        if (size() > myMaxSize) {
+          PerformanceMetrics.increment(PerformanceMetric.changeSetCacheEvictions);
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * The key of the changes is calculated once for the lifetime of the failed build, so processing passes
+   * of the same build only look it up.
+   */
+  @NotNull
+  BuildChangeContext getBuildChangeContext(@NotNull final FailedBuildInfo failedBuildInfo) {
+    return new BuildChangeContext(failedBuildInfo.getBuild(), getChangeSet(failedBuildInfo));
+  }
+
+  @NotNull
+  private ChangeSet getChangeSet(@NotNull final FailedBuildInfo failedBuildInfo) {
+    if (myMaxSize <= 0) {
+      return new ChangeSet();
+    }
+
+    @Nullable
+    String key = failedBuildInfo.getChangeSetKey(ChangeSetCache::calculateKey);
+    if (key == null) {
+      return new ChangeSet();
+    }
+
+    synchronized (myChangeSets) {
+      ChangeSet changeSet = myChangeSets.get(key);
+      if (changeSet != null) {
+        PerformanceMetrics.increment(PerformanceMetric.changeSetCacheHits);
+        LOGGER.debug("Build id:" + failedBuildInfo.getBuildId() + ". Reusing changes calculated for another build.");
+        return changeSet;
+      }
+
+      PerformanceMetrics.increment(PerformanceMetric.changeSetCacheMisses);
+      changeSet = new ChangeSet();
+      myChangeSets.put(key, changeSet);
+      return changeSet;
+    }
+  }
+
+  /*
+    The changes of a build are the changes between the revisions of the previous build and the revisions of the build
+    itself, filtered by the checkout rules. The previous build is selected by the same policy which ChangeSet uses
+    to load the changes. Personal builds also contain personal changes, they are never shared.
+   */
+  @Nullable
+  static String calculateKey(@NotNull final SBuild sBuild) {
+    if (sBuild.isPersonal()) {
+      return null;
+    }
+
+    List<BuildRevision> revisions = sBuild.getRevisions();
+    if (revisions.isEmpty()) {
+      return null;
+    }
+
+    BuildPromotion previousBuildPromotion =
+      sBuild.getBuildPromotion().getPreviousBuildPromotion(ChangeSet.PREV_BUILD_POLICY);
+    if (previousBuildPromotion == null) {
+      return null;
+    }
+
+    Map<Long, String> previousRevisions = new HashMap<>();
+    for (BuildRevision previousRevision : previousBuildPromotion.getRevisions()) {
+      previousRevisions.put(previousRevision.getRoot().getId(), previousRevision.getRevision());
+    }
+
+    List<BuildRevision> sortedRevisions = new ArrayList<>(revisions);
+    sortedRevisions.sort(Comparator.comparingLong(revision -> revision.getRoot().getId()));
+    StringBuilder key = new StringBuilder();
+    for (BuildRevision revision : sortedRevisions) {
+      long rootId = revision.getRoot().getId();
+      String fromRevision = previousRevisions.get(rootId);
+      if (fromRevision == null) {
+        return null;
+      }
+
+      key.append(rootId).append(':')
+         .append(revision.getEntry().getCheckoutRules().getAsString()).append(':')
+         .append(fromRevision).append("..").append(revision.getRevision()).append('\n');
+    }
+
+    return key.toString();
+  }
+}
@@ -34,15 +34,18 @@ public class DelayedAssignmentsProcessor extends BaseProcessor {
   private final FailedTestFilter myFailedTestFilter;
   private BuildProblemsAssigner myBuildProblemsAssigner;
   private FailedTestAssigner myFailedTestAssigner;
+  private final ChangeSetCache myChangeSetCache;
 
   public DelayedAssignmentsProcessor(BuildProblemsAssigner buildProblemsAssigner,
                                      FailedTestAssigner failedTestAssigner,
                                      BuildProblemsFilter buildProblemsFilter,
-                                     FailedTestFilter failedTestFilter) {
+                                     FailedTestFilter failedTestFilter,
+                                     ChangeSetCache changeSetCache) {
     myBuildProblemsAssigner = buildProblemsAssigner;
     myFailedTestAssigner = failedTestAssigner;
     myBuildProblemsFilter = buildProblemsFilter;
     myFailedTestFilter = failedTestFilter;
+    myChangeSetCache = changeSetCache;
   }
 
   public void processBuild(final FailedBuildInfo failedBuildInfo, SBuild nextBuild) {
@@ -78,7 +81,8 @@ public class DelayedAssignmentsProcessor extends BaseProcessor {
       myBuildProblemsFilter.getStillApplicable(failedBuildInfo, sProject, applicableProblems);
     logChangedProblemsNumber(sBuild, applicableFailedTests, testsForAssign, applicableProblems, problemsForAssign);
 
-    myFailedTestAssigner.assign(heuristicsResult, sProject, sBuild, testsForAssign);
-    myBuildProblemsAssigner.assign(heuristicsResult, sProject, sBuild, problemsForAssign);
+    BuildChangeContext buildChangeContext = myChangeSetCache.getBuildChangeContext(failedBuildInfo);
+    myFailedTestAssigner.assign(heuristicsResult, sProject, buildChangeContext, testsForAssign);
+    myBuildProblemsAssigner.assign(heuristicsResult, sProject, buildChangeContext, problemsForAssign);
   }
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ package jetbrains.buildServer.investigationsAutoAssigner.processing;
 import com.intellij.openapi.diagnostic.Logger;
 import java.util.List;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.investigationsAutoAssigner.common.FailuresFingerprint;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.persistent.AssignerArtifactDao;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
@@ -26,8 +27,10 @@ import jetbrains.buildServer.serverSide.BuildEx;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STestRun;
+import jetbrains.buildServer.serverSide.ShortStatistics;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
 
@@ -38,6 +41,7 @@ public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
   private final BuildProblemsAssigner myBuildProblemsAssigner;
   @NotNull private final AssignerArtifactDao myAssignerArtifactDao;
   @NotNull private ResponsibleUserFinder myResponsibleUserFinder;
+  @NotNull private final ChangeSetCache myChangeSetCache;
 
 
   public FailedTestAndBuildProblemsProcessor(@NotNull final ResponsibleUserFinder responsibleUserFinder,
@@ -45,13 +49,15 @@ public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
                                              @NotNull final FailedTestAssigner failedTestAssigner,
                                              @NotNull final BuildProblemsFilter buildProblemsFilter,
                                              @NotNull final BuildProblemsAssigner buildProblemsAssigner,
-                                             @NotNull final AssignerArtifactDao assignerArtifactDao) {
+                                             @NotNull final AssignerArtifactDao assignerArtifactDao,
+                                             @NotNull final ChangeSetCache changeSetCache) {
     myResponsibleUserFinder = responsibleUserFinder;
     myFailedTestFilter = failedTestFilter;
     myFailedTestAssigner = failedTestAssigner;
     myBuildProblemsFilter = buildProblemsFilter;
     myBuildProblemsAssigner = buildProblemsAssigner;
     myAssignerArtifactDao = assignerArtifactDao;
+    myChangeSetCache = changeSetCache;
   }
 
   public void processBuild(final FailedBuildInfo failedBuildInfo) {
@@ -66,18 +72,29 @@ public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
     }
 
     List<BuildProblem> allBuildProblems = ((BuildEx)sBuild).getBuildProblems();
+    @Nullable
+    FailuresFingerprint fingerprint = calculateFingerprint(sBuild, allBuildProblems);
+    if (!failedBuildInfo.hasChangesSinceLastProcessing(fingerprint)) {
+      LOGGER.debug("Skip processing build #" + sBuild.getBuildId() + " as it has no new failures.");
+      return;
+    }
+
+    // the server gives all the failed tests of the build, the filter looks only through the not processed ones
     List<STestRun> allFailedTests = requestBrokenTestsWithStats(sBuild);
     List<BuildProblem> applicableProblems = myBuildProblemsFilter.apply(failedBuildInfo, sProject, allBuildProblems);
     List<STestRun> applicableFailedTests = myFailedTestFilter.apply(failedBuildInfo, sProject, allFailedTests);
     logProblemsNumber(sBuild, applicableFailedTests, applicableProblems);
 
-    HeuristicResult heuristicsResult =
-      myResponsibleUserFinder.findResponsibleUser(sBuild, sProject, applicableProblems, applicableFailedTests);
+    BuildChangeContext buildChangeContext = myChangeSetCache.getBuildChangeContext(failedBuildInfo);
+    HeuristicResult heuristicsResult = myResponsibleUserFinder.findResponsibleUser(buildChangeContext, sProject,
+                                                                                   applicableProblems,
+                                                                                   applicableFailedTests);
 
     List<STestRun> testsForAssign = myFailedTestFilter.getStillApplicable(failedBuildInfo, sProject, applicableFailedTests);
     List<BuildProblem> problemsForAssign =
       myBuildProblemsFilter.getStillApplicable(failedBuildInfo, sProject, applicableProblems);
     logChangedProblemsNumber(sBuild, applicableFailedTests, testsForAssign, applicableProblems, problemsForAssign);
+    failedBuildInfo.setProcessedFingerprint(fingerprint);
 
     myAssignerArtifactDao.appendHeuristicsResult(sBuild, testsForAssign, heuristicsResult);
 
@@ -86,8 +103,8 @@ public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
     }
 
     if (CustomParameters.isBuildFeatureEnabled(sBuild) && !failedBuildInfo.shouldDelayAssignments()) {
-      myFailedTestAssigner.assign(heuristicsResult, sProject, sBuild, testsForAssign);
-      myBuildProblemsAssigner.assign(heuristicsResult, sProject, sBuild, problemsForAssign);
+      myFailedTestAssigner.assign(heuristicsResult, sProject, buildChangeContext, testsForAssign);
+      myBuildProblemsAssigner.assign(heuristicsResult, sProject, buildChangeContext, problemsForAssign);
     } else if (LOGGER.isDebugEnabled()) {
       if (!CustomParameters.isBuildFeatureEnabled(sBuild)) {
         LOGGER.debug(String.format("Build id:%s. Found investigations but build feature is not configured.",
@@ -100,4 +117,22 @@ public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
 
     failedBuildInfo.addHeuristicsResult(heuristicsResult);
   }
+
+  /*
+    Short statistics are kept up to date by the server for running builds, so they are much cheaper than
+    the full build statistics with the failed test runs.
+   */
+  @Nullable
+  private static FailuresFingerprint calculateFingerprint(@NotNull final SBuild sBuild,
+                                                          @NotNull final List<BuildProblem> buildProblems) {
+    @Nullable
+    ShortStatistics shortStatistics = sBuild.getShortStatistics();
+    if (shortStatistics == null) {
+      return null;
+    }
+
+    return new FailuresFingerprint(shortStatistics.getFailedTestCount(),
+                                   shortStatistics.getAllTestCount(),
+                                   buildProblems.size());
+  }
 }
@@ -27,7 +27,6 @@ import jetbrains.buildServer.investigationsAutoAssigner.persistent.StatisticsRep
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
 import jetbrains.buildServer.responsibility.ResponsibilityEntryEx;
 import jetbrains.buildServer.responsibility.TestNameResponsibilityFacade;
-import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.serverSide.WebLinks;
@@ -51,7 +50,7 @@ public class FailedTestAssigner extends BaseAssigner {
 
   void assign(final HeuristicResult heuristicsResult,
               final SProject sProject,
-              final SBuild sBuild,
+              final BuildChangeContext buildChangeContext,
               final List<STestRun> sTestRuns) {
     if (heuristicsResult.isEmpty()) return;
 
@@ -63,7 +62,7 @@ public class FailedTestAssigner extends BaseAssigner {
       testNameList.add(sTestRun.getTest().getName());
     }
 
-    Set<Long> committersIds = calculateCommitersIds(sBuild);
+    Set<Long> committersIds = buildChangeContext.getCommittersIds();
 
     Set<Responsibility> uniqueResponsibilities = responsibilityToTestNames.keySet();
     for (Responsibility responsibility : uniqueResponsibilities) {
@@ -75,7 +74,7 @@ public class FailedTestAssigner extends BaseAssigner {
                                   testNameList,
                                   responsibility.getDescription()));
 
-        String linkToBuild = myWebLinks.getViewResultsUrl(sBuild);
+        String linkToBuild = myWebLinks.getViewResultsUrl(buildChangeContext.getBuild());
         myTestNameResponsibilityFacade.setTestNameResponsibility(
           testNameList, sProject.getProjectId(),
           new ResponsibilityEntryEx(
@@ -17,6 +17,8 @@
 package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
 import com.intellij.openapi.diagnostic.Logger;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -29,6 +31,7 @@ import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STest;
 import jetbrains.buildServer.serverSide.STestRun;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -50,19 +53,28 @@ public class FailedTestFilter {
       LOGGER.debug(String.format("Filtering of failed tests for build id:%s started", sBuild.getBuildId()));
     }
 
-    List<STestRun> filteredTestRuns = testRuns.stream()
-                                              .sorted(Comparator.comparingInt(STestRun::getOrderId))
-                                              .filter(failedBuildInfo::checkNotProcessed)
-                                              .filter(testRun -> isApplicable(sProject, sBuild, testRun))
-                                              .limit(failedBuildInfo.getLimitToProcess())
-                                              .collect(Collectors.toList());
+    List<STestRun> newTestRuns = collectNewTestRuns(failedBuildInfo, testRuns);
+    List<STestRun> filteredTestRuns =
+      filterApplicable(sProject, sBuild, newTestRuns, failedBuildInfo.getLimitToProcess());
 
-    failedBuildInfo.addProcessedTestRuns(testRuns);
+    failedBuildInfo.addProcessedTestRuns(newTestRuns);
     failedBuildInfo.increaseProcessedNumber(filteredTestRuns.size());
 
     return filteredTestRuns;
   }
 
+  /*
+    Test runs of a parallel build can fail in another order than they started, so the new runs are found by
+    the processed test run ids rather than by the order ids. Only the new runs are sorted and filtered.
+   */
+  @NotNull
+  private static List<STestRun> collectNewTestRuns(@NotNull final FailedBuildInfo failedBuildInfo,
+                                                   @NotNull final List<STestRun> testRuns) {
+    List<STestRun> newTestRuns = failedBuildInfo.collectNotProcessed(testRuns);
+    newTestRuns.sort(Comparator.comparingInt(STestRun::getOrderId));
+    return newTestRuns;
+  }
+
   List<STestRun> getStillApplicable(final FailedBuildInfo failedBuildInfo,
                                     final SProject sProject,
                                     final List<STestRun> testRuns) {
@@ -70,29 +82,68 @@ public class FailedTestFilter {
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug(String.format("Filtering before assign of failed tests for build id:%s started", sBuild.getBuildId()));
     }
-    return testRuns.stream()
-                   .filter(testRun -> isApplicable(sProject, sBuild, testRun))
-                   .collect(Collectors.toList());
+    return filterApplicable(sProject, sBuild, testRuns, Integer.MAX_VALUE);
   }
 
-  private boolean isApplicable(@NotNull final SProject project,
-                               @NotNull final SBuild sBuild,
-                               @NotNull final STestRun testRun) {
-    String reason = null;
-
-    final STest test = testRun.getTest();
-    if (testRun.isMuted()) {
-      reason = "is muted";
-    } else if (testRun.isFixed()) {
-      reason = "is fixed";
-    } else if (!testRun.isNewFailure()) {
-      reason = "occurs not for the first time";
-    } else if (myInvestigationsManager.checkUnderInvestigation(project, sBuild, test)) {
-      reason = "is already under an investigation";
-    } else if (myFlakyTestDetector.isFlaky(test.getTestNameId())) {
-      reason = "is marked as flaky";
+  /*
+    The cheap checks of the test runs go first. Investigations and flakiness are checked for the remaining tests
+    in batches, so the project hierarchy is collected once and the flaky test detector is called once per batch.
+   */
+  @NotNull
+  private List<STestRun> filterApplicable(@NotNull final SProject project,
+                                          @NotNull final SBuild sBuild,
+                                          @NotNull final List<STestRun> testRuns,
+                                          final int limit) {
+    List<STestRun> candidates = new ArrayList<>();
+    for (STestRun testRun : testRuns) {
+      String reason = null;
+      if (testRun.isMuted()) {
+        reason = "is muted";
+      } else if (testRun.isFixed()) {
+        reason = "is fixed";
+      } else if (!testRun.isNewFailure()) {
+        reason = "occurs not for the first time";
+      }
+
+      if (reason == null) {
+        candidates.add(testRun);
+      } else {
+        logApplicability(testRun, reason);
+      }
+    }
+
+    List<STestRun> result = new ArrayList<>();
+    if (candidates.isEmpty() || limit <= 0) {
+      return result;
     }
 
+    // candidates are checked in chunks of the limit size, a chunk is checked only if the limit is not reached yet
+    for (int from = 0; from < candidates.size() && result.size() < limit; ) {
+      final int to = from + Math.min(candidates.size() - from, limit);
+      List<STestRun> chunk = candidates.subList(from, to);
+      List<STest> tests = chunk.stream().map(STestRun::getTest).collect(Collectors.toList());
+      BitSet underInvestigation = myInvestigationsManager.checkTestsUnderInvestigation(project, sBuild, tests);
+      BitSet flaky = myFlakyTestDetector.findFlaky(tests.stream().mapToLong(STest::getTestNameId).toArray());
+      for (int i = 0; i < chunk.size() && result.size() < limit; i++) {
+        final STestRun testRun = chunk.get(i);
+        String reason = null;
+        if (underInvestigation.get(i)) {
+          reason = "is already under an investigation";
+        } else if (flaky.get(i)) {
+          reason = "is marked as flaky";
+        }
+
+        logApplicability(testRun, reason);
+        if (reason == null) {
+          result.add(testRun);
+        }
+      }
+      from = to;
+    }
+    return result;
+  }
+
+  private static void logApplicability(@NotNull final STestRun testRun, @Nullable final String reason) {
     boolean isApplicable = reason == null;
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug(String.format("%s Test problem is %s.%s",
@@ -101,6 +152,5 @@ public class FailedTestFilter {
                                  (isApplicable ? "" : String.format(" Reason: this test problem %s.", reason))
       ));
     }
-    return isApplicable;
   }
 }
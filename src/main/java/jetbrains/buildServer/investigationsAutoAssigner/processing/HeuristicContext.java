@@ -17,6 +17,7 @@
 package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
 import java.util.List;
+import java.util.Set;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STestRun;
@@ -27,24 +28,29 @@ public final class HeuristicContext {
   private final SProject mySProject;
   private final List<BuildProblem> myBuildProblems;
   private final List<STestRun> mySTestRuns;
-  private final SBuild mySBuild;
-  private final List<String> myBlackList;
+  private final BuildChangeContext myBuildChangeContext;
 
   public HeuristicContext(SBuild sBuild,
                           SProject sProject,
                           List<BuildProblem> buildProblems,
                           List<STestRun> sTestRuns,
                           @NotNull List<String> usernameBlackList) {
-    mySBuild = sBuild;
+    this(new BuildChangeContext(sBuild, usernameBlackList), sProject, buildProblems, sTestRuns);
+  }
+
+  public HeuristicContext(@NotNull BuildChangeContext buildChangeContext,
+                          SProject sProject,
+                          List<BuildProblem> buildProblems,
+                          List<STestRun> sTestRuns) {
+    myBuildChangeContext = buildChangeContext;
     mySProject = sProject;
     myBuildProblems = buildProblems;
     mySTestRuns = sTestRuns;
-    myBlackList = usernameBlackList;
   }
 
   @NotNull
   public SBuild getBuild() {
-    return mySBuild;
+    return myBuildChangeContext.getBuild();
   }
 
   @NotNull
@@ -61,8 +67,12 @@ public final class HeuristicContext {
   }
 
   @NotNull
-  public List<String> getUserFilter() {
-    return myBlackList;
+  public Set<String> getUserFilter() {
+    return myBuildChangeContext.getUsersToIgnore();
   }
-}
 
+  @NotNull
+  public BuildChangeContext getBuildChangeContext() {
+    return myBuildChangeContext;
+  }
+}
@@ -16,25 +16,55 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.heuristics.Heuristic;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
-import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetric;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import jetbrains.buildServer.util.executors.ExecutorsFactory;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class ResponsibleUserFinder {
-  private List<Heuristic> myOrderedHeuristics;
+  private static final Logger LOGGER = Logger.getInstance(ResponsibleUserFinder.class.getName());
+  private final List<Heuristic> myOrderedHeuristics;
+  private final List<Heuristic> myHeuristicsByCost;
+  // null unless the heuristics should be run concurrently
+  @Nullable private final ExecutorService myExecutor;
 
   public ResponsibleUserFinder(@NotNull final List<Heuristic> orderedHeuristics) {
     myOrderedHeuristics = orderedHeuristics;
+    myHeuristicsByCost = new ArrayList<>(orderedHeuristics);
+    myHeuristicsByCost.sort(Comparator.comparing(Heuristic::getCost));
+    myExecutor = CustomParameters.isParallelHeuristicsEnabled() && orderedHeuristics.size() > 1 ?
+                 ExecutorsFactory.newFixedDaemonExecutor(Constants.BUILD_FEATURE_TYPE + " heuristics",
+                                                         CustomParameters.getProcessingThreadsNumber() *
+                                                         (orderedHeuristics.size() - 1)) :
+                 null;
   }
 
-  HeuristicResult findResponsibleUser(SBuild sBuild,
+  public void dispose() {
+    if (myExecutor != null) {
+      myExecutor.shutdownNow();
+    }
+  }
+
+  HeuristicResult findResponsibleUser(BuildChangeContext buildChangeContext,
                                       SProject sProject,
                                       List<BuildProblem> buildProblems,
                                       List<STestRun> testRuns) {
@@ -43,30 +73,108 @@ public class ResponsibleUserFinder {
       return new HeuristicResult();
     }
 
+    if (myExecutor != null) {
+      return findConcurrently(myExecutor, buildChangeContext, sProject, buildProblems, testRuns);
+    }
+
     HeuristicResult result = new HeuristicResult();
-    List<String> usernamesBlackList = CustomParameters.getUsersToIgnore(sBuild);
-    for (Heuristic heuristic : myOrderedHeuristics) {
-      HeuristicContext heuristicContext =
-        new HeuristicContext(sBuild, sProject, buildProblems, testRuns, usernamesBlackList);
+    List<BuildProblem> unresolvedBuildProblems = new ArrayList<>(buildProblems);
+    List<STestRun> unresolvedTestRuns = new ArrayList<>(testRuns);
+    HeuristicContext heuristicContext =
+      new HeuristicContext(buildChangeContext, sProject, unresolvedBuildProblems, unresolvedTestRuns);
+    for (Heuristic heuristic : findApplicable(heuristicContext)) {
+      PerformanceMetrics.increment(PerformanceMetric.heuristicsRun);
       HeuristicResult heuristicResult = heuristic.findResponsibleUser(heuristicContext);
+      if (heuristicResult.isEmpty()) {
+        continue;
+      }
 
-      buildProblems = heuristicContext.getBuildProblems()
-                                      .stream()
-                                      .filter(buildProblem -> heuristicResult.getResponsibility(buildProblem) == null)
-                                      .collect(Collectors.toList());
-
-      testRuns = heuristicContext.getTestRuns()
-                                 .stream()
-                                 .filter(sTestRun -> heuristicResult.getResponsibility(sTestRun) == null)
-                                 .collect(Collectors.toList());
-
+      unresolvedBuildProblems.removeIf(buildProblem -> heuristicResult.getResponsibility(buildProblem) != null);
+      unresolvedTestRuns.removeIf(sTestRun -> heuristicResult.getResponsibility(sTestRun) != null);
       result.merge(heuristicResult);
 
-      if (buildProblems.isEmpty() && testRuns.isEmpty()) {
+      if (unresolvedBuildProblems.isEmpty() && unresolvedTestRuns.isEmpty()) {
         break;
       }
     }
 
     return result;
   }
+
+  /**
+   * Checks the applicability of every heuristic before any of them runs, from the cheapest heuristic to the most
+   * expensive one.
+   * @return the applicable heuristics in the order of their priority.
+   */
+  @NotNull
+  private List<Heuristic> findApplicable(@NotNull final HeuristicContext heuristicContext) {
+    Set<Heuristic> notApplicable = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Heuristic heuristic : myHeuristicsByCost) {
+      if (!heuristic.isApplicable(heuristicContext)) {
+        PerformanceMetrics.increment(PerformanceMetric.heuristicsSkipped);
+        LOGGER.debug(String.format("Build %s: %s is not applicable, skip it",
+                                   heuristicContext.getBuild().getBuildId(), heuristic.getName()));
+        notApplicable.add(heuristic);
+      }
+    }
+
+    List<Heuristic> applicableHeuristics = new ArrayList<>(myOrderedHeuristics);
+    applicableHeuristics.removeIf(notApplicable::contains);
+    return applicableHeuristics;
+  }
+
+  /*
+    Every applicable heuristic looks through all the failures at the same time. The cheapest one runs in the calling
+    thread, the most expensive ones are submitted first. The results are merged from the last heuristic to the first
+    one, so a failure gets the responsibility found by the heuristic with the highest priority, the same as with the
+    sequential run.
+   */
+  @NotNull
+  private HeuristicResult findConcurrently(@NotNull final ExecutorService executor,
+                                           @NotNull final BuildChangeContext buildChangeContext,
+                                           @NotNull final SProject sProject,
+                                           @NotNull final List<BuildProblem> buildProblems,
+                                           @NotNull final List<STestRun> testRuns) {
+    HeuristicContext applicabilityContext =
+      new HeuristicContext(buildChangeContext, sProject, buildProblems, testRuns);
+    List<Heuristic> applicableHeuristics = findApplicable(applicabilityContext);
+    if (applicableHeuristics.isEmpty()) {
+      return new HeuristicResult();
+    }
+
+    List<Heuristic> heuristicsByCost = new ArrayList<>(applicableHeuristics);
+    heuristicsByCost.sort(Comparator.comparing(Heuristic::getCost).reversed());
+    Heuristic cheapestHeuristic = heuristicsByCost.remove(heuristicsByCost.size() - 1);
+    PerformanceMetrics.increase(PerformanceMetric.heuristicsRun, applicableHeuristics.size());
+
+    Map<Heuristic, Future<HeuristicResult>> futures = new IdentityHashMap<>();
+    for (Heuristic heuristic : heuristicsByCost) {
+      HeuristicContext heuristicContext =
+        new HeuristicContext(buildChangeContext, sProject, new ArrayList<>(buildProblems), new ArrayList<>(testRuns));
+      futures.put(heuristic, executor.submit(() -> heuristic.findResponsibleUser(heuristicContext)));
+    }
+
+    HeuristicResult result = new HeuristicResult();
+    try {
+      HeuristicContext heuristicContext =
+        new HeuristicContext(buildChangeContext, sProject, new ArrayList<>(buildProblems), new ArrayList<>(testRuns));
+      HeuristicResult cheapestResult = cheapestHeuristic.findResponsibleUser(heuristicContext);
+      for (int i = applicableHeuristics.size() - 1; i >= 0; i--) {
+        Heuristic heuristic = applicableHeuristics.get(i);
+        result.merge(heuristic == cheapestHeuristic ? cheapestResult : futures.get(heuristic).get());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Search of the responsible users was interrupted", ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      throw new IllegalStateException(cause);
+    } finally {
+      futures.values().forEach(future -> future.cancel(true));
+    }
+
+    return result;
+  }
 }
@@ -27,7 +27,6 @@ import jetbrains.buildServer.investigationsAutoAssigner.persistent.StatisticsRep
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.FlakyTestDetector;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
-import jetbrains.buildServer.responsibility.TestNameResponsibilityEntry;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.stat.FirstFailedInFixedInCalculator;
 import jetbrains.buildServer.web.openapi.PluginDescriptor;
@@ -122,9 +121,6 @@ public class AutoAssignerDetailsController extends BaseController {
     if (sBuildType == null) return false;
     SProject sProject = sBuildType.getProject();
 
-    @Nullable
-    TestNameResponsibilityEntry investigationEntry = myInvestigationsManager.getInvestigation(sProject, sBuild, sTest);
-
-    return investigationEntry != null;
+    return myInvestigationsManager.checkUnderInvestigation(sProject, sBuild, sTest);
   }
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import jetbrains.buildServer.responsibility.BuildProblemResponsibilityEntry;
+import jetbrains.buildServer.responsibility.ResponsibilityEntry;
+import jetbrains.buildServer.responsibility.ResponsibilityFacadeEx;
+import jetbrains.buildServer.responsibility.TestNameResponsibilityEntry;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.serverSide.SProject;
+import jetbrains.buildServer.serverSide.executors.ExecutorServices;
+import jetbrains.buildServer.serverSide.problems.BuildProblemInfo;
+import jetbrains.buildServer.tests.TestName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationKeys.getBuildProblemKey;
+import static jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationKeys.getTestKey;
+
+/**
+ * Current investigations of tests and build problems by project. The index is built from all investigations
+ * of the server, then it is kept up to date by the responsibility events (a removed investigation is dropped)
+ * and rebuilt periodically to fix a possible drift.
+ * Fixed investigations are kept only for the last days, so a build queued before that
+ * (or any build while the index is not built or exceeds its size limit) has to be checked by the responsibility
+ * entries, see {@link #isReadyFor(SBuild)}.
+ */
+public class ActiveInvestigationsIndex {
+  private static final Logger LOGGER = Logger.getInstance(ActiveInvestigationsIndex.class.getName());
+  private static final long FIXED_INVESTIGATIONS_RETENTION_MS = TimeUnit.DAYS.toMillis(7);
+
+  @NotNull private final ResponsibilityFacadeEx myResponsibilityFacade;
+  // null while the index is not built or has too many investigations
+  @Nullable private volatile ConcurrentHashMap<String, Investigation> myInvestigations;
+  // the index being rebuilt receives the events too, so the ones which come during the rebuild are not lost
+  @Nullable private volatile ConcurrentHashMap<String, Investigation> myRebuiltInvestigations;
+  private volatile long myCompleteSince = Long.MAX_VALUE;
+
+  public ActiveInvestigationsIndex(@NotNull final ResponsibilityFacadeEx responsibilityFacade,
+                                   @NotNull final ExecutorServices executorServices) {
+    myResponsibilityFacade = responsibilityFacade;
+    executorServices.getNormalExecutorService()
+                    .scheduleWithFixedDelay(this::rebuild,
+                                            0,
+                                            CustomParameters.getActiveInvestigationsReconcileIntervalInMinutes(),
+                                            TimeUnit.MINUTES);
+  }
+
+  /**
+   * @return true if the investigations which could affect the build are known to the index.
+   */
+  public boolean isReadyFor(@NotNull final SBuild sBuild) {
+    return myInvestigations != null && sBuild.getQueuedDate().getTime() >= myCompleteSince;
+  }
+
+  public boolean isTestUnderInvestigation(@NotNull final Set<String> projectIds,
+                                          @NotNull final SBuild sBuild,
+                                          @NotNull final TestName testName) {
+    final ConcurrentHashMap<String, Investigation> investigations = myInvestigations;
+    if (investigations == null) return false;
+
+    for (String projectId : projectIds) {
+      if (isActiveOrAlreadyFixed(investigations.get(getTestKey(projectId, testName)), sBuild)) return true;
+    }
+    return false;
+  }
+
+  public boolean isBuildProblemUnderInvestigation(@NotNull final Set<String> projectIds,
+                                                  @NotNull final SBuild sBuild,
+                                                  final int buildProblemId) {
+    final ConcurrentHashMap<String, Investigation> investigations = myInvestigations;
+    if (investigations == null) return false;
+
+    for (String projectId : projectIds) {
+      if (isActiveOrAlreadyFixed(investigations.get(getBuildProblemKey(projectId, buildProblemId)), sBuild)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public void testsResponsibleChanged(@NotNull final SProject project,
+                                      @NotNull final Collection<TestName> testNames,
+                                      @NotNull final ResponsibilityEntry entry) {
+    final Investigation investigation = new Investigation(entry.getState(), entry.getTimestamp().getTime());
+    for (TestName testName : testNames) {
+      put(getTestKey(project.getProjectId(), testName), investigation);
+    }
+  }
+
+  public void buildProblemsResponsibleChanged(@NotNull final SProject project,
+                                              @NotNull final Collection<BuildProblemInfo> buildProblems,
+                                              @Nullable final ResponsibilityEntry entry) {
+    final Investigation investigation = entry != null ?
+                                        new Investigation(entry.getState(), entry.getTimestamp().getTime()) :
+                                        new Investigation(ResponsibilityEntry.State.NONE, System.currentTimeMillis());
+    for (BuildProblemInfo buildProblem : buildProblems) {
+      put(getBuildProblemKey(project.getProjectId(), buildProblem.getId()), investigation);
+    }
+  }
+
+  /**
+   * @return number of the investigations in the index, 0 while it is not used.
+   */
+  int size() {
+    final ConcurrentHashMap<String, Investigation> investigations = myInvestigations;
+    return investigations == null ? 0 : investigations.size();
+  }
+
+  void rebuild() {
+    final long fixedSince = System.currentTimeMillis() - FIXED_INVESTIGATIONS_RETENTION_MS;
+    final int maxSize = CustomParameters.getActiveInvestigationsIndexMaxSize();
+    final ConcurrentHashMap<String, Investigation> rebuilt = new ConcurrentHashMap<>();
+    myRebuiltInvestigations = rebuilt;
+    try {
+      for (TestNameResponsibilityEntry entry : myResponsibilityFacade.getUserTestNameResponsibilities(null, null)) {
+        if (isKept(entry, fixedSince)) {
+          rebuilt.merge(getTestKey(entry.getProject().getProjectId(), entry.getTestName()),
+                        new Investigation(entry.getState(), entry.getTimestamp().getTime()),
+                        Investigation::newer);
+        }
+      }
+      for (BuildProblemResponsibilityEntry entry :
+        myResponsibilityFacade.getUserBuildProblemResponsibilities(null, null)) {
+        if (isKept(entry, fixedSince)) {
+          rebuilt.merge(getBuildProblemKey(entry.getProject().getProjectId(), entry.getBuildProblemInfo().getId()),
+                        new Investigation(entry.getState(), entry.getTimestamp().getTime()),
+                        Investigation::newer);
+        }
+      }
+
+      // removed investigations are kept during the rebuild only to override the older entries read meanwhile
+      rebuilt.values().removeIf(Investigation::isRemoved);
+      if (rebuilt.size() > maxSize) {
+        LOGGER.warn(String.format("There are %s investigations, which is more than the limit %s of the index. " +
+                                  "Investigations will be checked without the index.", rebuilt.size(), maxSize));
+        myInvestigations = null;
+        return;
+      }
+      myInvestigations = rebuilt;
+      myCompleteSince = fixedSince;
+    } catch (Exception ex) {
+      LOGGER.warn("Failed to rebuild the index of investigations", ex);
+    } finally {
+      myRebuiltInvestigations = null;
+    }
+  }
+
+  private void put(@NotNull final String key, @NotNull final Investigation investigation) {
+    final ConcurrentHashMap<String, Investigation> rebuilt = myRebuiltInvestigations;
+    if (rebuilt != null) {
+      rebuilt.merge(key, investigation, Investigation::newer);
+    }
+
+    final ConcurrentHashMap<String, Investigation> investigations = myInvestigations;
+    if (investigations == null) return;
+
+    if (investigation.isRemoved()) {
+      // an investigation changed after the removal is kept
+      investigations.computeIfPresent(key, (k, current) -> current.myTimestamp > investigation.myTimestamp ?
+                                                           current :
+                                                           null);
+      return;
+    }
+
+    investigations.merge(key, investigation, Investigation::newer);
+    if (investigations.size() > CustomParameters.getActiveInvestigationsIndexMaxSize()) {
+      LOGGER.warn("The index of investigations exceeded its size limit and will not be used until it is rebuilt.");
+      myInvestigations = null;
+    }
+  }
+
+  private static boolean isKept(@NotNull final ResponsibilityEntry entry, final long fixedSince) {
+    final ResponsibilityEntry.State state = entry.getState();
+    return state.isActive() || (state.isFixed() && entry.getTimestamp().getTime() >= fixedSince);
+  }
+
+  private static boolean isActiveOrAlreadyFixed(@Nullable final Investigation investigation,
+                                                @NotNull final SBuild sBuild) {
+    if (investigation == null) return false;
+
+    final ResponsibilityEntry.State state = investigation.myState;
+    return state.isActive() ||
+           (state.isFixed() && sBuild.getQueuedDate().getTime() - investigation.myTimestamp <= 0);
+  }
+
+  private static final class Investigation {
+    @NotNull private final ResponsibilityEntry.State myState;
+    private final long myTimestamp;
+
+    private Investigation(@NotNull final ResponsibilityEntry.State state, final long timestamp) {
+      myState = state;
+      myTimestamp = timestamp;
+    }
+
+    private boolean isRemoved() {
+      return myState == ResponsibilityEntry.State.NONE;
+    }
+
+    @NotNull
+    private static Investigation newer(@NotNull final Investigation first, @NotNull final Investigation second) {
+      return second.myTimestamp >= first.myTimestamp ? second : first;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.*;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.serverSide.SBuildFeatureDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parsed parameters of the build feature of a build. A snapshot is taken once per processing pass of a build,
+ * see {@link jetbrains.buildServer.investigationsAutoAssigner.processing.BuildChangeContext}.
+ */
+public final class BuildFeatureSettings {
+  private static final BuildFeatureSettings DISABLED =
+    new BuildFeatureSettings(false, Collections.emptyList(), Collections.emptySet());
+
+  private final boolean myEnabled;
+  @NotNull private final List<String> myDefaultResponsible;
+  @NotNull private final Set<String> myUsersToIgnore;
+
+  private BuildFeatureSettings(final boolean enabled,
+                               @NotNull final List<String> defaultResponsible,
+                               @NotNull final Set<String> usersToIgnore) {
+    myEnabled = enabled;
+    myDefaultResponsible = defaultResponsible;
+    myUsersToIgnore = usersToIgnore;
+  }
+
+  /**
+   * The settings are parsed from the resolved build features of the build itself.
+   */
+  @NotNull
+  static BuildFeatureSettings of(@NotNull final SBuild sBuild) {
+    final Collection<SBuildFeatureDescriptor> descriptors = sBuild.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE);
+    if (descriptors.isEmpty()) return DISABLED;
+
+    final Map<String, String> parameters = descriptors.iterator().next().getParameters();
+    final List<String> defaultResponsible = new ArrayList<>();
+    for (String username : split(parameters.get(Constants.DEFAULT_RESPONSIBLE), ",")) {
+      defaultResponsible.add(username.trim());
+    }
+    final Set<String> usersToIgnore = new LinkedHashSet<>();
+    for (String username : split(parameters.get(Constants.USERS_TO_IGNORE), "\n")) {
+      usersToIgnore.add(username.trim());
+    }
+
+    return new BuildFeatureSettings(true,
+                                    Collections.unmodifiableList(defaultResponsible),
+                                    Collections.unmodifiableSet(usersToIgnore));
+  }
+
+  @NotNull
+  private static String[] split(@Nullable final String value, @NotNull final String separator) {
+    return value == null ? new String[0] : value.split(separator);
+  }
+
+  public boolean isEnabled() {
+    return myEnabled;
+  }
+
+  @NotNull
+  public List<String> getDefaultResponsible() {
+    return myDefaultResponsible;
+  }
+
+  @NotNull
+  public Set<String> getUsersToIgnore() {
+    return myUsersToIgnore;
+  }
+}
@@ -16,33 +16,41 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
-import java.util.List;
+import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.investigationsAutoAssigner.common.IntHashSet;
 import jetbrains.buildServer.serverSide.BuildPromotion;
 import jetbrains.buildServer.serverSide.BuildPromotionEx;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 public class BuildProblemUtils {
 
   public boolean isNew(@NotNull BuildProblem buildProblem) {
-    BuildPromotion problemsOwner = buildProblem.getBuildPromotion();
-
-    BuildPromotionEx prevBuildPromo =
-      (BuildPromotionEx)problemsOwner.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
-    List<BuildProblem> prevProblems = prevBuildPromo == null ? null : prevBuildPromo.getBuildProblems();
+    return !collectPreviousBuildProblemIds(buildProblem.getBuildPromotion()).contains(buildProblem.getId());
+  }
 
-    return !containsBuildProblem(prevProblems, buildProblem);
+  /**
+   * Same as {@link #isNew(BuildProblem)}, but the ids of the problems of the previous build are collected once
+   * per failed build, so checking the rest of its problems takes a set lookup.
+   */
+  public boolean isNew(@NotNull FailedBuildInfo failedBuildInfo, @NotNull BuildProblem buildProblem) {
+    IntHashSet prevProblemIds =
+      failedBuildInfo.getPreviousBuildProblemIds(buildProblem.getBuildPromotion(),
+                                                 BuildProblemUtils::collectPreviousBuildProblemIds);
+    return !prevProblemIds.contains(buildProblem.getId());
   }
 
-  private boolean containsBuildProblem(@Nullable List<BuildProblem> problems,
-                                              @NotNull BuildProblem buildProblem) {
-    if (problems == null) return false;
+  @NotNull
+  private static IntHashSet collectPreviousBuildProblemIds(@NotNull BuildPromotion problemsOwner) {
+    BuildPromotionEx prevBuildPromo =
+      (BuildPromotionEx)problemsOwner.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
+    IntHashSet result = new IntHashSet();
+    if (prevBuildPromo == null) return result;
 
-    for (BuildProblem problem: problems) {
-      if (buildProblem.getId() == problem.getId()) return true;
+    for (BuildProblem problem : prevBuildPromo.getBuildProblems()) {
+      result.add(problem.getId());
     }
-    return false;
+    return result;
   }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Read-only text which is a sequence of other char sequences. It lets to scan several texts (e.g. a test name and
+ * a huge test output) as one without copying them into a new string. The length of the text is limited by
+ * the budget given to the {@link Builder}, the parts which exceed it are cut.
+ */
+public final class CompositeText implements CharSequence {
+  private final CharSequence[] myParts;
+  private final int[] myPartLengths;
+  private final int[] myPartOffsets;
+  private final int myLength;
+
+  private CompositeText(@NotNull final List<CharSequence> parts, @NotNull final List<Integer> partLengths) {
+    myParts = parts.toArray(new CharSequence[0]);
+    myPartLengths = new int[parts.size()];
+    myPartOffsets = new int[parts.size()];
+    int length = 0;
+    for (int i = 0; i < myParts.length; i++) {
+      myPartOffsets[i] = length;
+      myPartLengths[i] = partLengths.get(i);
+      length += myPartLengths[i];
+    }
+    myLength = length;
+  }
+
+  @NotNull
+  public static Builder builder(final int maxLength) {
+    return new Builder(maxLength);
+  }
+
+  public int getPartsCount() {
+    return myParts.length;
+  }
+
+  /**
+   * @return the part, only its first {@link #getPartLength(int)} chars belong to the text.
+   */
+  @NotNull
+  public CharSequence getPart(final int index) {
+    return myParts[index];
+  }
+
+  public int getPartLength(final int index) {
+    return myPartLengths[index];
+  }
+
+  @Override
+  public int length() {
+    return myLength;
+  }
+
+  @Override
+  public char charAt(final int index) {
+    if (index < 0 || index >= myLength) {
+      throw new IndexOutOfBoundsException("index: " + index + ", length: " + myLength);
+    }
+
+    int part = Arrays.binarySearch(myPartOffsets, index);
+    if (part < 0) {
+      part = -part - 2;
+    }
+    return myParts[part].charAt(index - myPartOffsets[part]);
+  }
+
+  @Override
+  public CharSequence subSequence(final int start, final int end) {
+    return toString().subSequence(start, end);
+  }
+
+  @NotNull
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(myLength);
+    for (int i = 0; i < myParts.length; i++) {
+      sb.append(myParts[i], 0, myPartLengths[i]);
+    }
+    return sb.toString();
+  }
+
+  public static final class Builder {
+    private final List<CharSequence> myParts = new ArrayList<>();
+    private final List<Integer> myPartLengths = new ArrayList<>();
+    private int myRemaining;
+
+    private Builder(final int maxLength) {
+      myRemaining = maxLength;
+    }
+
+    /**
+     * Appends the part without copying it, the part is cut if the budget of the text is exceeded.
+     * Null parts are skipped.
+     */
+    @NotNull
+    public Builder append(@Nullable final CharSequence part) {
+      if (part == null) {
+        return this;
+      }
+
+      int length = Math.min(part.length(), myRemaining);
+      if (length > 0) {
+        myParts.add(part);
+        myPartLengths.add(length);
+        myRemaining -= length;
+      }
+      return this;
+    }
+
+    public boolean isFull() {
+      return myRemaining <= 0;
+    }
+
+    @NotNull
+    public CompositeText build() {
+      return new CompositeText(myParts, myPartLengths);
+    }
+  }
+}
@@ -17,11 +17,8 @@
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
 import java.util.*;
-import java.util.stream.Collectors;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
-import jetbrains.buildServer.serverSide.SBuild;
-import jetbrains.buildServer.serverSide.SBuildFeatureDescriptor;
-import jetbrains.buildServer.serverSide.TeamCityProperties;
+import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.util.StringUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -29,31 +26,31 @@ import org.jetbrains.annotations.Nullable;
 public class CustomParameters {
   private final static Integer MINIMAL_PROCESSING_DELAY = 5;
   private final static Integer DEFAULT_PROCESSING_DELAY_IN_SECONDS = 10 * 60;
+  private final static Integer MINIMAL_QUIET_PERIOD_IN_SECONDS = 1;
+  private final static Integer DEFAULT_QUIET_PERIOD_IN_SECONDS = 30;
+  private final static Integer MINIMAL_PROCESSING_THREADS_NUMBER = 1;
+  private final static Integer DEFAULT_PROCESSING_THREADS_NUMBER = 2;
+  private final static Integer DEFAULT_CHANGE_SET_CACHE_SIZE = 100;
+  private final static Integer MINIMAL_PROBLEM_TEXT_MAX_LENGTH = 1024;
+  private final static Integer DEFAULT_PROBLEM_TEXT_MAX_LENGTH = 1024 * 1024;
+  private final static Integer DEFAULT_PROBLEM_TEXT_FIRST_LINES_NUMBER = 20;
+  private final static Integer DEFAULT_EXIT_CODE_LOG_TAIL_SIZE_IN_KB = 64;
+  private final static Integer MINIMAL_AUDIT_SCAN_WINDOW_IN_DAYS = 1;
+  private final static Integer DEFAULT_AUDIT_SCAN_WINDOW_IN_DAYS = 365;
+  private final static Integer MINIMAL_AUDIT_SCAN_MAX_ACTIONS = 1;
+  private final static Integer DEFAULT_AUDIT_SCAN_MAX_ACTIONS = 10000;
+  private final static Integer DEFAULT_ACTIVE_INVESTIGATIONS_INDEX_MAX_SIZE = 200000;
+  private final static Integer MINIMAL_ACTIVE_INVESTIGATIONS_RECONCILE_INTERVAL_IN_MINUTES = 1;
+  private final static Integer DEFAULT_ACTIVE_INVESTIGATIONS_RECONCILE_INTERVAL_IN_MINUTES = 60;
 
   @NotNull
   public static List<String> getDefaultResponsible(final SBuild build) {
-    final SBuildFeatureDescriptor sBuildFeature = getBuildFeatureDescriptor(build);
-    if (sBuildFeature == null) return Collections.emptyList();
-    String defaultResponsible = sBuildFeature.getParameters().get(Constants.DEFAULT_RESPONSIBLE);
-    if (defaultResponsible == null) {
-      return Collections.emptyList();
-    }
-    return Arrays.stream(defaultResponsible.split(",")).map(String::trim).collect(Collectors.toList());
+    return getBuildFeatureSettings(build).getDefaultResponsible();
   }
 
   @NotNull
-  public static List<String> getUsersToIgnore(final SBuild build) {
-    final SBuildFeatureDescriptor sBuildFeature = getBuildFeatureDescriptor(build);
-    if (sBuildFeature == null) {
-      return Collections.emptyList();
-    }
-
-    String usersToIgnore = sBuildFeature.getParameters().get(Constants.USERS_TO_IGNORE);
-    if (usersToIgnore == null) {
-      return Collections.emptyList();
-    }
-
-    return Arrays.stream(usersToIgnore.split("\n")).map(String::trim).collect(Collectors.toList());
+  public static Set<String> getUsersToIgnore(final SBuild build) {
+    return getBuildFeatureSettings(build).getUsersToIgnore();
   }
 
   public static boolean isDefaultSilentModeEnabled(final SBuild build) {
@@ -72,11 +69,13 @@ public class CustomParameters {
     return Boolean.valueOf(TeamCityProperties.getProperty(Constants.DEFAULT_SILENT_MODE_ENABLED, "true"));
   }
 
-  @Nullable
-  private static SBuildFeatureDescriptor getBuildFeatureDescriptor(final SBuild build) {
-    Collection<SBuildFeatureDescriptor> descriptors = build.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE);
-    if (descriptors.isEmpty()) return null;
-    return descriptors.iterator().next();
+  /**
+   * @return settings parsed from the build features of the build, callers which need them several times during
+   * a processing pass should keep the result.
+   */
+  @NotNull
+  public static BuildFeatureSettings getBuildFeatureSettings(@NotNull final SBuild build) {
+    return BuildFeatureSettings.of(build);
   }
 
   public static int getProcessingDelayInSeconds() {
@@ -85,6 +84,74 @@ public class CustomParameters {
     return value < MINIMAL_PROCESSING_DELAY ? MINIMAL_PROCESSING_DELAY : value;
   }
 
+  public static boolean isEventDrivenProcessingEnabled() {
+    return TeamCityProperties.getBooleanOrTrue(Constants.EVENT_DRIVEN_PROCESSING_ENABLED);
+  }
+
+  public static boolean isParallelHeuristicsEnabled() {
+    return TeamCityProperties.getBoolean(Constants.PARALLEL_HEURISTICS_ENABLED);
+  }
+
+  public static int getQuietPeriodInSeconds() {
+    int value =
+      TeamCityProperties.getInteger(Constants.PROCESSING_QUIET_PERIOD_IN_SECONDS, DEFAULT_QUIET_PERIOD_IN_SECONDS);
+    return value < MINIMAL_QUIET_PERIOD_IN_SECONDS ? MINIMAL_QUIET_PERIOD_IN_SECONDS : value;
+  }
+
+  public static int getProcessingThreadsNumber() {
+    int value =
+      TeamCityProperties.getInteger(Constants.PROCESSING_THREADS_NUMBER, DEFAULT_PROCESSING_THREADS_NUMBER);
+    return value < MINIMAL_PROCESSING_THREADS_NUMBER ? MINIMAL_PROCESSING_THREADS_NUMBER : value;
+  }
+
+  public static int getChangeSetCacheSize() {
+    return TeamCityProperties.getInteger(Constants.CHANGE_SET_CACHE_SIZE, DEFAULT_CHANGE_SET_CACHE_SIZE);
+  }
+
+  /**
+   * @return max number of chars of a single failure text (a test name with its output or a build problem with its
+   * compilation errors) which are looked through by the heuristics.
+   */
+  public static int getProblemTextMaxLength() {
+    int value = TeamCityProperties.getInteger(Constants.PROBLEM_TEXT_MAX_LENGTH, DEFAULT_PROBLEM_TEXT_MAX_LENGTH);
+    return value < MINIMAL_PROBLEM_TEXT_MAX_LENGTH ? MINIMAL_PROBLEM_TEXT_MAX_LENGTH : value;
+  }
+
+  public static int getExitCodeLogTailLength() {
+    int value = TeamCityProperties.getInteger(Constants.EXIT_CODE_LOG_TAIL_SIZE_IN_KB,
+                                              DEFAULT_EXIT_CODE_LOG_TAIL_SIZE_IN_KB);
+    return value < 0 ? 0 : value * 1024;
+  }
+
+  public static int getAuditScanWindowInDays() {
+    int value = TeamCityProperties.getInteger(Constants.AUDIT_SCAN_WINDOW_IN_DAYS, DEFAULT_AUDIT_SCAN_WINDOW_IN_DAYS);
+    return value < MINIMAL_AUDIT_SCAN_WINDOW_IN_DAYS ? MINIMAL_AUDIT_SCAN_WINDOW_IN_DAYS : value;
+  }
+
+  public static int getAuditScanMaxActions() {
+    int value = TeamCityProperties.getInteger(Constants.AUDIT_SCAN_MAX_ACTIONS, DEFAULT_AUDIT_SCAN_MAX_ACTIONS);
+    return value < MINIMAL_AUDIT_SCAN_MAX_ACTIONS ? MINIMAL_AUDIT_SCAN_MAX_ACTIONS : value;
+  }
+
+  public static int getActiveInvestigationsIndexMaxSize() {
+    return TeamCityProperties.getInteger(Constants.ACTIVE_INVESTIGATIONS_INDEX_MAX_SIZE,
+                                         DEFAULT_ACTIVE_INVESTIGATIONS_INDEX_MAX_SIZE);
+  }
+
+  public static int getActiveInvestigationsReconcileIntervalInMinutes() {
+    int value = TeamCityProperties.getInteger(Constants.ACTIVE_INVESTIGATIONS_RECONCILE_INTERVAL_IN_MINUTES,
+                                              DEFAULT_ACTIVE_INVESTIGATIONS_RECONCILE_INTERVAL_IN_MINUTES);
+    return value < MINIMAL_ACTIVE_INVESTIGATIONS_RECONCILE_INTERVAL_IN_MINUTES ?
+           MINIMAL_ACTIVE_INVESTIGATIONS_RECONCILE_INTERVAL_IN_MINUTES :
+           value;
+  }
+
+  public static int getProblemTextFirstLinesNumber() {
+    int value = TeamCityProperties.getInteger(Constants.PROBLEM_TEXT_FIRST_LINES_NUMBER,
+                                              DEFAULT_PROBLEM_TEXT_FIRST_LINES_NUMBER);
+    return value < 0 ? 0 : value;
+  }
+
   public static int getMaxTestsPerBuildThreshold(SBuild build) {
     @Nullable
     String maxTestsPerBuildNumber = build.getParametersProvider().get(Constants.MAX_TESTS_PER_BUILD_NUMBER);
@@ -113,9 +180,7 @@ public class CustomParameters {
   }
 
   public static boolean isBuildFeatureEnabled(@NotNull SBuild sBuild) {
-    Collection<SBuildFeatureDescriptor> descriptors = sBuild.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE);
-
-    return !descriptors.isEmpty();
+    return getBuildFeatureSettings(sBuild).isEnabled();
   }
 
   public static boolean shouldRunForFeatureBranches(SBuild build) {
@@ -16,7 +16,13 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.management.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static java.lang.String.format;
 import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
@@ -27,10 +33,31 @@ public class FlakyTestDetector {
    */
   private static final String OBJECT_NAME = "com.jetbrains.teamcity:type=FlakyTestDetector";
   /**
-   * Whether InstanceNotFoundException has been caught.
+   * The batch operation taking long[] of test name ids and returning boolean[], supported by newer detectors.
    */
-  private boolean instanceNotFound = false;
+  private static final String BATCH_OPERATION = "areFlaky";
+  private static final long ANSWER_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+  private static final long REPROBE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+  private static final int MAX_CACHED_ANSWERS = 100_000;
+
   private final com.intellij.openapi.diagnostic.Logger LOGGER = com.intellij.openapi.diagnostic.Logger.getInstance(FlakyTestDetector.class.getName());
+  @Nullable private final ObjectName myObjectName = createObjectName();
+  /**
+   * The detector is not called before this time. It is moved forward when InstanceNotFoundException is caught.
+   */
+  private volatile long myNextProbeTime = 0;
+  /**
+   * Whether the detector supports the batch operation, null until the detector is found.
+   */
+  @Nullable private volatile Boolean myBatchSupported;
+  private volatile boolean myReportedNotFound = false;
+  // test name id -> {1 if flaky else 0, expiration time}, in the order of adding
+  private final LinkedHashMap<Long, long[]> myAnswers = new LinkedHashMap<Long, long[]>() {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Long, long[]> eldest) {
+      return size() > MAX_CACHED_ANSWERS;
+    }
+  };
 
   /**
    * If Flaky Test Detector plug-in is not installed, returns false
@@ -39,20 +66,108 @@ public class FlakyTestDetector {
    * @return whether the test specified by testNameId is flaky.
    */
   public boolean isFlaky(final long testNameId) {
-    if (instanceNotFound) return false;
+    return findFlaky(new long[]{testNameId}).get(0);
+  }
+
+  /**
+   * Same as {@link #isFlaky(long)} for several tests. Recent answers are taken from the cache, the other tests
+   * are asked about in one call when the detector supports it.
+   *
+   * @return the indexes of the flaky tests among testNameIds.
+   */
+  @NotNull
+  public BitSet findFlaky(@NotNull final long[] testNameIds) {
+    final BitSet result = new BitSet(testNameIds.length);
+    final long now = System.currentTimeMillis();
+    final BitSet unknown = new BitSet(testNameIds.length);
+    synchronized (myAnswers) {
+      for (int i = 0; i < testNameIds.length; i++) {
+        final long[] answer = myAnswers.get(testNameIds[i]);
+        if (answer == null || answer[1] <= now) {
+          unknown.set(i);
+        } else if (answer[0] == 1) {
+          result.set(i);
+        }
+      }
+    }
+    if (unknown.isEmpty()) return result;
+
+    final long[] unknownTestNameIds = new long[unknown.cardinality()];
+    for (int i = unknown.nextSetBit(0), j = 0; i >= 0; i = unknown.nextSetBit(i + 1), j++) {
+      unknownTestNameIds[j] = testNameIds[i];
+    }
+    final boolean[] answers = askDetector(unknownTestNameIds);
+    if (answers == null) return result;
+
+    synchronized (myAnswers) {
+      for (int i = unknown.nextSetBit(0), j = 0; i >= 0; i = unknown.nextSetBit(i + 1), j++) {
+        myAnswers.remove(testNameIds[i]);
+        myAnswers.put(testNameIds[i], new long[]{answers[j] ? 1 : 0, now + ANSWER_TTL_MS});
+        if (answers[j]) result.set(i);
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private boolean[] askDetector(@NotNull final long[] testNameIds) {
+    if (myObjectName == null || System.currentTimeMillis() < myNextProbeTime) return null;
 
     final MBeanServer mBeanServer = getPlatformMBeanServer();
     try {
-      return (Boolean)mBeanServer.invoke(new ObjectName(OBJECT_NAME),
-                                         "isFlaky",
-                                         new Long[]{testNameId},
-                                         new String[]{"long"});
+      Boolean batchSupported = myBatchSupported;
+      if (batchSupported == null) {
+        batchSupported = isBatchSupported(mBeanServer.getMBeanInfo(myObjectName));
+        myBatchSupported = batchSupported;
+        myReportedNotFound = false;
+      }
+
+      if (batchSupported) {
+        return (boolean[])mBeanServer.invoke(myObjectName,
+                                             BATCH_OPERATION,
+                                             new Object[]{testNameIds},
+                                             new String[]{long[].class.getName()});
+      }
+
+      final boolean[] result = new boolean[testNameIds.length];
+      for (int i = 0; i < testNameIds.length; i++) {
+        result[i] = (Boolean)mBeanServer.invoke(myObjectName,
+                                                "isFlaky",
+                                                new Long[]{testNameIds[i]},
+                                                new String[]{"long"});
+      }
+      return result;
     } catch (final InstanceNotFoundException ignored) {
-      instanceNotFound = true;
-      LOGGER.warn(format("Flaky Test Detector is not available at %s", OBJECT_NAME));
-    } catch (final MBeanException | ReflectionException | MalformedObjectNameException e) {
+      myBatchSupported = null;
+      myNextProbeTime = System.currentTimeMillis() + REPROBE_INTERVAL_MS;
+      if (!myReportedNotFound) {
+        myReportedNotFound = true;
+        LOGGER.warn(format("Flaky Test Detector is not available at %s", OBJECT_NAME));
+      }
+    } catch (final MBeanException | ReflectionException | IntrospectionException e) {
       LOGGER.warn(e);
     }
+    return null;
+  }
+
+  private static boolean isBatchSupported(@NotNull final MBeanInfo mBeanInfo) {
+    for (MBeanOperationInfo operation : mBeanInfo.getOperations()) {
+      final MBeanParameterInfo[] signature = operation.getSignature();
+      if (BATCH_OPERATION.equals(operation.getName()) &&
+          signature.length == 1 &&
+          long[].class.getName().equals(signature[0].getType())) {
+        return true;
+      }
+    }
     return false;
   }
+
+  @Nullable
+  private static ObjectName createObjectName() {
+    try {
+      return new ObjectName(OBJECT_NAME);
+    } catch (MalformedObjectNameException e) {
+      return null;
+    }
+  }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import jetbrains.buildServer.tests.TestName;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keys of the tests and build problems of a project, shared by the indices of investigations. The keys of
+ * {@link jetbrains.buildServer.investigationsAutoAssigner.persistent.PreviousResponsibleIndex} are kept on disk,
+ * so the format must not change.
+ */
+public class InvestigationKeys {
+  @NotNull
+  public static String getTestKey(@NotNull final String projectId, @NotNull final TestName testName) {
+    return "t " + projectId + " " + testName.getAsString();
+  }
+
+  @NotNull
+  public static String getBuildProblemKey(@NotNull final String projectId, final int buildProblemId) {
+    return "p " + projectId + " " + buildProblemId;
+  }
+}
@@ -17,6 +17,7 @@
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import jetbrains.buildServer.BuildProject;
 import jetbrains.buildServer.responsibility.BuildProblemResponsibilityEntry;
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
@@ -37,41 +38,114 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class InvestigationsManager {
+  private static final int AUDIT_PAGE_SIZE = 500;
 
   @NotNull private final AuditLogProvider myAuditLogProvider;
   @NotNull private final ResponsibilityFacadeEx myResponsibilityFacade;
+  @NotNull private final ActiveInvestigationsIndex myActiveInvestigationsIndex;
+  @NotNull private final ProjectHierarchyCache myProjectHierarchyCache;
 
   public InvestigationsManager(@NotNull final AuditLogProvider auditLogProvider,
-                        @NotNull final ResponsibilityFacadeEx responsibilityFacade) {
+                        @NotNull final ResponsibilityFacadeEx responsibilityFacade,
+                        @NotNull final ActiveInvestigationsIndex activeInvestigationsIndex,
+                        @NotNull final ProjectHierarchyCache projectHierarchyCache) {
     this.myAuditLogProvider = auditLogProvider;
     myResponsibilityFacade = responsibilityFacade;
+    myActiveInvestigationsIndex = activeInvestigationsIndex;
+    myProjectHierarchyCache = projectHierarchyCache;
   }
 
   public boolean checkUnderInvestigation(@NotNull final SProject project,
                                          @NotNull final SBuild sBuild,
                                          @NotNull final BuildProblem problem) {
-    for (BuildProblemResponsibilityEntry entry : problem.getAllResponsibilities()) {
-      if (isActiveOrAlreadyFixed(sBuild, entry) && belongSameProjectOrParent(entry.getProject(), project)) return true;
-    }
-    return false;
+    return isUnderInvestigation(collectProjectHierarchyIds(project), sBuild, problem);
   }
 
   public boolean checkUnderInvestigation(@NotNull final SProject project,
                                          @NotNull final SBuild sBuild,
                                          @NotNull final STest test) {
-    return getInvestigation(project, sBuild, test) != null;
+    return isUnderInvestigation(collectProjectHierarchyIds(project), sBuild, test);
+  }
+
+  /**
+   * Checks a batch of build problems against the investigations of the project hierarchy, which is collected
+   * only once for the whole batch.
+   *
+   * @return the indexes of the problems which are already under an investigation
+   */
+  @NotNull
+  public BitSet checkProblemsUnderInvestigation(@NotNull final SProject project,
+                                                @NotNull final SBuild sBuild,
+                                                @NotNull final List<BuildProblem> problems) {
+    final Set<String> projectIds = collectProjectHierarchyIds(project);
+    final BitSet result = new BitSet(problems.size());
+    for (int i = 0; i < problems.size(); i++) {
+      if (isUnderInvestigation(projectIds, sBuild, problems.get(i))) {
+        result.set(i);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link #checkProblemsUnderInvestigation} for tests.
+   */
+  @NotNull
+  public BitSet checkTestsUnderInvestigation(@NotNull final SProject project,
+                                             @NotNull final SBuild sBuild,
+                                             @NotNull final List<STest> tests) {
+    final Set<String> projectIds = collectProjectHierarchyIds(project);
+    final BitSet result = new BitSet(tests.size());
+    for (int i = 0; i < tests.size(); i++) {
+      if (isUnderInvestigation(projectIds, sBuild, tests.get(i))) {
+        result.set(i);
+      }
+    }
+    return result;
   }
 
   @Nullable
   public TestNameResponsibilityEntry getInvestigation(@NotNull final SProject project,
                                                       @NotNull final SBuild sBuild,
                                                       @NotNull final STest test) {
+    return findInvestigation(collectProjectHierarchyIds(project), sBuild, test);
+  }
+
+  @Nullable
+  private TestNameResponsibilityEntry findInvestigation(@NotNull final Set<String> projectIds,
+                                                        @NotNull final SBuild sBuild,
+                                                        @NotNull final STest test) {
     for (TestNameResponsibilityEntry entry : test.getAllResponsibilities()) {
-      if (isActiveOrAlreadyFixed(sBuild, entry) && belongSameProjectOrParent(entry.getProject(), project)) return entry;
+      if (isActiveOrAlreadyFixed(sBuild, entry) && projectIds.contains(entry.getProject().getProjectId())) {
+        return entry;
+      }
     }
     return null;
   }
 
+  private boolean isUnderInvestigation(@NotNull final Set<String> projectIds,
+                                       @NotNull final SBuild sBuild,
+                                       @NotNull final STest test) {
+    if (myActiveInvestigationsIndex.isReadyFor(sBuild)) {
+      return myActiveInvestigationsIndex.isTestUnderInvestigation(projectIds, sBuild, test.getName());
+    }
+    return findInvestigation(projectIds, sBuild, test) != null;
+  }
+
+  private boolean isUnderInvestigation(@NotNull final Set<String> projectIds,
+                                       @NotNull final SBuild sBuild,
+                                       @NotNull final BuildProblem problem) {
+    if (myActiveInvestigationsIndex.isReadyFor(sBuild)) {
+      return myActiveInvestigationsIndex.isBuildProblemUnderInvestigation(projectIds, sBuild, problem.getId());
+    }
+    for (BuildProblemResponsibilityEntry entry : problem.getAllResponsibilities()) {
+      if (isActiveOrAlreadyFixed(sBuild, entry) && projectIds.contains(entry.getProject().getProjectId())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private boolean isActiveOrAlreadyFixed(@NotNull final SBuild sBuild, @NotNull final ResponsibilityEntry entry) {
     final ResponsibilityEntry.State state = entry.getState();
     return state.isActive() || (state.isFixed() && createdBeforeBuildQueued(entry, sBuild));
@@ -82,8 +156,7 @@ public class InvestigationsManager {
   }
 
   private boolean belongSameProjectOrParent(@NotNull final BuildProject parent, @NotNull final BuildProject project) {
-    List<String> projectIds = collectProjectHierarchyIds(project);
-    return projectIds.contains(parent.getProjectId());
+    return collectProjectHierarchyIds(project).contains(parent.getProjectId());
   }
 
   @Nullable
@@ -97,8 +170,18 @@ public class InvestigationsManager {
     return responsible;
   }
 
+  /**
+   * @return the previous responsible of the problem among its investigations fixed after the build was queued.
+   */
   @Nullable
-  private User findInAudit(final BuildProblem buildProblem) {
+  public User findAmongEntries(@NotNull final SProject project,
+                               @NotNull final SBuild sBuild,
+                               @NotNull final BuildProblem problem) {
+    return this.findAmongEntries(project, sBuild, problem.getAllResponsibilities());
+  }
+
+  @Nullable
+  public User findInAudit(@NotNull final BuildProblem buildProblem) {
     AuditLogBuilder builder = myAuditLogProvider.getBuilder();
     builder.setObjectId(BuildProblemAuditId.fromBuildProblem(buildProblem).asString());
     builder.addFilter(new ActionTypesFilter(ActionType.BUILD_PROBLEM_MARK_AS_FIXED));
@@ -141,44 +224,104 @@ public class InvestigationsManager {
     return null;
   }
 
+  /**
+   * Looks through the audit from the newest actions to the oldest ones page by page. The scan is limited by
+   * {@link CustomParameters#getAuditScanWindowInDays()} and {@link CustomParameters#getAuditScanMaxActions()}
+   * and stops as soon as the previous responsible is found for every test.
+   */
   @NotNull
   public HashMap<Long, User> findInAudit(@NotNull final Iterable<STestRun> sTestRuns, @NotNull SProject project) {
-    AuditLogBuilder builder = myAuditLogProvider.getBuilder();
-    builder.setActionTypes(ActionType.TEST_MARK_AS_FIXED, ActionType.TEST_INVESTIGATION_ASSIGN);
-    List<String> projectIds = collectProjectHierarchyIds(project);
+    Set<String> projectIds = collectProjectHierarchyIds(project);
     Set<String> objectIds = new HashSet<>();
+    Set<Long> testNameIds = new HashSet<>();
     for (STestRun testRun : sTestRuns) {
+      final long testNameId = testRun.getTest().getTestNameId();
+      testNameIds.add(testNameId);
       for (String projectId : projectIds) {
-        objectIds.add(TestId.createOn(testRun.getTest().getTestNameId(), projectId).asString());
+        objectIds.add(TestId.createOn(testNameId, projectId).asString());
       }
     }
-    builder.addFilter(new ObjectIdsFilter(objectIds));
-    List<AuditLogAction> lastActions = builder.getLogActions(-1);
+
     HashMap<Long, User> result = new HashMap<>();
-    for (AuditLogAction action : lastActions) {
-      for (ObjectWrapper obj : action.getObjects()) {
-        Object user = obj.getObject();
-        if (!(user instanceof User)) {
-          continue;
-        }
-
-        TestId testId = TestId.fromString(action.getObjectId());
-        if (testId != null) {
-          result.putIfAbsent(testId.getTestNameId(), (User)user);
-          break;
-        }
+    if (objectIds.isEmpty()) {
+      return result;
+    }
+
+    final long startTime = System.currentTimeMillis();
+    final Date fromDate = new Date(startTime - TimeUnit.DAYS.toMillis(CustomParameters.getAuditScanWindowInDays()));
+    final int maxActions = CustomParameters.getAuditScanMaxActions();
+    Date toDate = null;
+    int scannedActions = 0;
+    while (scannedActions < maxActions && result.size() < testNameIds.size()) {
+      final int pageSize = Math.min(AUDIT_PAGE_SIZE, maxActions - scannedActions);
+      List<AuditLogAction> page = getTestActions(objectIds, fromDate, toDate, pageSize);
+      scannedActions += page.size();
+      for (AuditLogAction action : page) {
+        addResponsible(result, action);
       }
+
+      if (page.size() < pageSize) {
+        break;
+      }
+
+      Date oldestDate = page.get(page.size() - 1).getCreated();
+      if (toDate == null || oldestDate.getTime() < toDate.getTime()) {
+        // actions of the oldest millisecond could be on both sides of the page border, they are read again with
+        // the next page and the duplicates are ignored
+        toDate = oldestDate;
+        continue;
+      }
+
+      // the whole page is of one millisecond: all its actions are read at once before the bound is moved back
+      List<AuditLogAction> tiedActions = getTestActions(objectIds, toDate, toDate, maxActions - scannedActions);
+      scannedActions += tiedActions.size();
+      for (AuditLogAction action : tiedActions) {
+        addResponsible(result, action);
+      }
+      toDate = new Date(toDate.getTime() - 1);
     }
+
+    PerformanceMetrics.increment(PerformanceMetric.auditScans);
+    PerformanceMetrics.increase(PerformanceMetric.auditScannedActions, scannedActions);
+    PerformanceMetrics.increase(PerformanceMetric.auditScanTimeMs, System.currentTimeMillis() - startTime);
     return result;
   }
 
   @NotNull
-  private List<String> collectProjectHierarchyIds(@NotNull BuildProject project) {
-    List<String> result = new ArrayList<>();
-    do {
-      result.add(project.getProjectId());
-      project = project.getParentProject();
-    } while (project != null);
-    return result;
+  private List<AuditLogAction> getTestActions(@NotNull final Set<String> objectIds,
+                                              @NotNull final Date fromDate,
+                                              @Nullable final Date toDate,
+                                              final int limit) {
+    if (limit <= 0) {
+      return Collections.emptyList();
+    }
+
+    AuditLogBuilder builder = myAuditLogProvider.getBuilder();
+    builder.setActionTypes(ActionType.TEST_MARK_AS_FIXED, ActionType.TEST_INVESTIGATION_ASSIGN);
+    builder.addFilter(new ObjectIdsFilter(objectIds));
+    builder.setFromDate(fromDate);
+    builder.setToDate(toDate);
+    PerformanceMetrics.increment(PerformanceMetric.auditScanPages);
+    return builder.getLogActions(limit);
+  }
+
+  private static void addResponsible(@NotNull final HashMap<Long, User> result, @NotNull final AuditLogAction action) {
+    for (ObjectWrapper obj : action.getObjects()) {
+      Object user = obj.getObject();
+      if (!(user instanceof User)) {
+        continue;
+      }
+
+      TestId testId = TestId.fromString(action.getObjectId());
+      if (testId != null) {
+        result.putIfAbsent(testId.getTestNameId(), (User)user);
+        return;
+      }
+    }
+  }
+
+  @NotNull
+  private Set<String> collectProjectHierarchyIds(@NotNull final BuildProject project) {
+    return myProjectHierarchyCache.getHierarchyIds(project);
   }
 }
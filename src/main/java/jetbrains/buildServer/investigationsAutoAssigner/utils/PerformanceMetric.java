@@ -0,0 +1,41 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+/**
+ * Counters of the processing internals which are kept in memory only, see {@link PerformanceMetrics}.
+ */
+public enum PerformanceMetric {
+  changeSetCacheHits,
+  changeSetCacheMisses,
+  changeSetCacheEvictions,
+  brokenFileFoundInName,
+  brokenFileFoundInFirstLines,
+  brokenFileFoundInFullText,
+  brokenFileNotFound,
+  compileErrorsCacheHits,
+  compileErrorsCacheMisses,
+  exitCodeLogTailMessages,
+  // failures of one build whose output was analyzed by the broken file heuristic for another failure
+  brokenFileClusterHits,
+  auditScans,
+  auditScanPages,
+  auditScannedActions,
+  auditScanTimeMs,
+  heuristicsRun,
+  heuristicsSkipped
+}
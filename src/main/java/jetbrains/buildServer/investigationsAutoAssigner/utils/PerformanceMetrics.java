@@ -0,0 +1,50 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * In-memory counters of the processing internals (cache efficiency, skipped work, etc.).
+ * Unlike the usage statistics they are not persisted and start from zero after a server restart.
+ */
+public class PerformanceMetrics {
+  private static final PerformanceMetric[] METRICS = PerformanceMetric.values();
+  private static final AtomicLongArray ourValues = new AtomicLongArray(METRICS.length);
+
+  public static void increment(@NotNull final PerformanceMetric metric) {
+    ourValues.incrementAndGet(metric.ordinal());
+  }
+
+  public static void increase(@NotNull final PerformanceMetric metric, final long delta) {
+    ourValues.addAndGet(metric.ordinal(), delta);
+  }
+
+  public static long get(@NotNull final PerformanceMetric metric) {
+    return ourValues.get(metric.ordinal());
+  }
+
+  @NotNull
+  public static String generateReport() {
+    StringBuilder sb = new StringBuilder("Performance metrics since the server start:\n\n");
+    for (PerformanceMetric metric : METRICS) {
+      sb.append(metric.name()).append(": ").append(get(metric)).append(";\n");
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Text of a failure split into tiers from the cheapest to the most expensive to obtain, e.g. a test name,
+ * the first lines of the test output and the rest of it. A tier is computed only when it is requested for
+ * the first time, so a consumer which is satisfied by the first tiers never pays for the next ones.
+ */
+public final class ProblemText {
+  private final List<TierKind> myKinds;
+  private final List<Supplier<CharSequence>> mySuppliers;
+  private final CharSequence[] myTiers;
+
+  public ProblemText(@NotNull final List<TierKind> kinds, @NotNull final List<Supplier<CharSequence>> suppliers) {
+    if (kinds.size() != suppliers.size()) {
+      throw new IllegalArgumentException("Each tier should have a kind");
+    }
+    myKinds = kinds;
+    mySuppliers = suppliers;
+    myTiers = new CharSequence[suppliers.size()];
+  }
+
+  /**
+   * @return problem text with the only tier.
+   */
+  @NotNull
+  public static ProblemText of(@NotNull final CharSequence text) {
+    return new ProblemText(Collections.singletonList(TierKind.FULL_TEXT), Collections.singletonList(() -> text));
+  }
+
+  public int getTiersCount() {
+    return myTiers.length;
+  }
+
+  @NotNull
+  public TierKind getTierKind(final int index) {
+    return myKinds.get(index);
+  }
+
+  @NotNull
+  public CharSequence getTier(final int index) {
+    if (myTiers[index] == null) {
+      myTiers[index] = mySuppliers.get(index).get();
+    }
+    return myTiers[index];
+  }
+
+  public enum TierKind {
+    NAME(PerformanceMetric.brokenFileFoundInName),
+    FIRST_LINES(PerformanceMetric.brokenFileFoundInFirstLines),
+    FULL_TEXT(PerformanceMetric.brokenFileFoundInFullText);
+
+    private final PerformanceMetric myHitMetric;
+
+    TierKind(@NotNull final PerformanceMetric hitMetric) {
+      myHitMetric = hitMetric;
+    }
+
+    @NotNull
+    public PerformanceMetric getHitMetric() {
+      return myHitMetric;
+    }
+  }
+}
@@ -16,7 +16,18 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jetbrains.buildServer.BuildProblemData;
 import jetbrains.buildServer.BuildProblemTypes;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.STest;
@@ -31,23 +42,230 @@ import org.jetbrains.annotations.Nullable;
 
 import static jetbrains.buildServer.serverSide.impl.problems.types.CompilationErrorTypeDetailsProvider.COMPILE_BLOCK_INDEX;
 
+/**
+ * Provides the texts of failures which are looked through by the heuristics. The texts are composed of the original
+ * strings without copying them and are limited by {@link CustomParameters#getProblemTextMaxLength()}. Every text is
+ * split into {@link ProblemText} tiers which are retrieved from the server only when they are needed.
+ * Compile errors and the log tails of exit code problems are read from the build log once and kept until
+ * {@link #forgetBuild(long)} is called for the build.
+ */
 public class ProblemTextExtractor {
-  public String getBuildProblemText(@NotNull final BuildProblem problem, @NotNull final SBuild build) {
-    StringBuilder problemSpecificText = new StringBuilder();
+  // compile errors of the builds in processing by build id and compile block index
+  private final ConcurrentHashMap<Long, ConcurrentHashMap<Integer, List<String>>> myCompileErrors =
+    new ConcurrentHashMap<>();
+  // last messages of the build log before the exit code problems by build id
+  private final ConcurrentHashMap<Long, LogTails> myLogTails = new ConcurrentHashMap<>();
+
+  @NotNull
+  public ProblemText getBuildProblemText(@NotNull final BuildProblem problem, @NotNull final SBuild build) {
+    final int maxLength = CustomParameters.getProblemTextMaxLength();
+    final CharSequence description = CompositeText.builder(maxLength)
+                                                  .append(problem.getBuildProblemDescription())
+                                                  .build();
 
+    return new ProblemText(Arrays.asList(ProblemText.TierKind.NAME, ProblemText.TierKind.FULL_TEXT),
+                           Arrays.asList(() -> description,
+                                         () -> getCompileErrors(problem, build, maxLength - description.length())));
+  }
+
+  /**
+   * Drops the cached compile errors of the build, should be called when the build is not processed anymore.
+   */
+  public void forgetBuild(final long buildId) {
+    myCompileErrors.remove(buildId);
+    myLogTails.remove(buildId);
+  }
+
+  @NotNull
+  private CharSequence getCompileErrors(@NotNull final BuildProblem problem,
+                                        @NotNull final SBuild build,
+                                        final int maxLength) {
+    CompositeText.Builder problemText = CompositeText.builder(maxLength);
     // todo make an extension point here
-    if (problem.getBuildProblemData().getType().equals(BuildProblemTypes.TC_COMPILATION_ERROR_TYPE)) {
+    final String problemType = problem.getBuildProblemData().getType();
+    if (BuildProblemTypes.TC_COMPILATION_ERROR_TYPE.equals(problemType)) {
       final Integer compileBlockIndex = getCompileBlockIndex(problem);
       if (compileBlockIndex != null) {
-        final List<LogMessage> errors =
-          new BuildLogCompileErrorCollector().collectCompileErrors(compileBlockIndex, build);
-        for (LogMessage error : errors) {
-          problemSpecificText.append(error.getText()).append(" ");
+        for (String error : getCompileErrors(build, compileBlockIndex)) {
+          if (problemText.isFull()) break;
+          problemText.append(error).append(" ");
         }
       }
+    } else if (BuildProblemTypes.TC_EXIT_CODE_TYPE.equals(problemType)) {
+      for (String message : getLogTail(build, problem)) {
+        if (problemText.isFull()) break;
+        problemText.append(message).append(" ");
+      }
+    }
+
+    return problemText.build();
+  }
+
+  @NotNull
+  private List<String> getCompileErrors(@NotNull final SBuild build, final int compileBlockIndex) {
+    final ConcurrentHashMap<Integer, List<String>> buildCompileErrors =
+      myCompileErrors.computeIfAbsent(build.getBuildId(), buildId -> new ConcurrentHashMap<>());
+    final List<String> cachedErrors = buildCompileErrors.get(compileBlockIndex);
+    if (cachedErrors != null) {
+      PerformanceMetrics.increment(PerformanceMetric.compileErrorsCacheHits);
+      return cachedErrors;
     }
 
-    return problemSpecificText + " " + problem.getBuildProblemDescription();
+    return buildCompileErrors.computeIfAbsent(compileBlockIndex, index -> {
+      PerformanceMetrics.increment(PerformanceMetric.compileErrorsCacheMisses);
+      return collectCompileErrors(build, index);
+    });
+  }
+
+  // only the texts which fit into the problem text are kept
+  @NotNull
+  private static List<String> collectCompileErrors(@NotNull final SBuild build, final int compileBlockIndex) {
+    final int maxLength = CustomParameters.getProblemTextMaxLength();
+    final List<String> errors = new ArrayList<>();
+    int length = 0;
+    for (LogMessage error : new BuildLogCompileErrorCollector().collectCompileErrors(compileBlockIndex, build)) {
+      if (length >= maxLength) break;
+      final String text = error.getText();
+      errors.add(text);
+      length += text.length() + 1;
+    }
+    return errors;
+  }
+
+  @NotNull
+  private List<String> getLogTail(@NotNull final SBuild build, @NotNull final BuildProblem problem) {
+    return myLogTails.computeIfAbsent(build.getBuildId(), buildId -> new LogTails()).get(build, problem);
+  }
+
+  /**
+   * Exit code problems have no details, the reason of the failure is usually printed by the failed step right before
+   * it exits. The log of a build is read once for all its exit code problems: the tail of a problem is taken at
+   * the exit message of its own step, and the reading stops when every problem got its tail. A problem which is
+   * not among the failure reasons of the build at the moment of reading gets the tail where the reading stopped.
+   * Only the last {@link CustomParameters#getExitCodeLogTailLength()} characters are kept, so a huge log is never
+   * loaded at once.
+   */
+  private static final class LogTails {
+    private static final String EXIT_MESSAGE_PREFIX = "Process exited with code";
+    private static final String STEP_MESSAGE_PREFIX = "Step ";
+    private static final String DESCRIPTION_STEP_PREFIX = "(Step: ";
+
+    // build problem identity -> tail
+    private final Map<String, List<String>> myTails = new HashMap<>();
+    @Nullable private List<String> myLastTail;
+
+    @NotNull
+    synchronized List<String> get(@NotNull final SBuild build, @NotNull final BuildProblem problem) {
+      if (myLastTail == null) {
+        collect(build, problem.getBuildProblemData());
+      }
+      final List<String> tail = myTails.get(problem.getBuildProblemData().getIdentity());
+      return tail != null ? tail : myLastTail;
+    }
+
+    private void collect(@NotNull final SBuild build, @NotNull final BuildProblemData problemData) {
+      // identity -> description of the problems without tails, in the order of the failure reasons
+      final Map<String, String> pending = new LinkedHashMap<>();
+      for (BuildProblemData failureReason : build.getFailureReasons()) {
+        if (BuildProblemTypes.TC_EXIT_CODE_TYPE.equals(failureReason.getType())) {
+          pending.putIfAbsent(failureReason.getIdentity(), failureReason.getDescription());
+        }
+      }
+      pending.putIfAbsent(problemData.getIdentity(), problemData.getDescription());
+
+      final int maxLength = CustomParameters.getExitCodeLogTailLength();
+      if (maxLength == 0) {
+        myLastTail = Collections.emptyList();
+        return;
+      }
+
+      final ArrayDeque<String> tail = new ArrayDeque<>();
+      int length = 0;
+      @Nullable String stepName = null;
+      final Iterator<LogMessage> messages = build.getBuildLog().getMessagesIterator();
+      while (!pending.isEmpty() && messages.hasNext()) {
+        final String text = messages.next().getText();
+        if (text == null || text.isEmpty()) continue;
+
+        if (text.startsWith(EXIT_MESSAGE_PREFIX)) {
+          // an exit message belongs to one problem only
+          final String identity = findProblem(pending, text, stepName);
+          if (identity != null) {
+            putTail(identity, tail);
+            pending.remove(identity);
+          }
+          continue;
+        }
+
+        final String startedStepName = getStartedStepName(text);
+        if (startedStepName != null) {
+          stepName = startedStepName;
+        }
+
+        tail.addLast(text);
+        length += text.length() + 1;
+        while (length > maxLength && tail.size() > 1) {
+          length -= tail.removeFirst().length() + 1;
+        }
+      }
+
+      for (String identity : pending.keySet()) {
+        putTail(identity, tail);
+      }
+      myLastTail = new ArrayList<>(tail);
+    }
+
+    /**
+     * The description of an exit code problem is the exit message of its step followed by the step name,
+     * e.g. "Process exited with code 1 (Step: Compile (Gradle))". A problem of the current step is preferred,
+     * otherwise the first problem with the same exit message and an unknown step is taken.
+     */
+    @Nullable
+    private static String findProblem(@NotNull final Map<String, String> pending,
+                                      @NotNull final String exitMessage,
+                                      @Nullable final String stepName) {
+      String firstWithUnknownStep = null;
+      for (Map.Entry<String, String> entry : pending.entrySet()) {
+        final String description = entry.getValue();
+        if (description == null || !description.startsWith(exitMessage)) continue;
+
+        final String problemStepName = getProblemStepName(description);
+        if (problemStepName != null && problemStepName.equals(stepName)) {
+          return entry.getKey();
+        }
+        if ((problemStepName == null || stepName == null) && firstWithUnknownStep == null) {
+          firstWithUnknownStep = entry.getKey();
+        }
+      }
+      return firstWithUnknownStep;
+    }
+
+    @Nullable
+    private static String getProblemStepName(@NotNull final String description) {
+      final int start = description.indexOf(DESCRIPTION_STEP_PREFIX);
+      final int end = description.lastIndexOf(')');
+      if (start < 0 || end < start + DESCRIPTION_STEP_PREFIX.length()) return null;
+      return description.substring(start + DESCRIPTION_STEP_PREFIX.length(), end);
+    }
+
+    // "Step 1/3: Compile (Gradle)" -> "Compile (Gradle)"
+    @Nullable
+    private static String getStartedStepName(@NotNull final String text) {
+      if (!text.startsWith(STEP_MESSAGE_PREFIX)) return null;
+
+      final int colon = text.indexOf(": ", STEP_MESSAGE_PREFIX.length());
+      if (colon < 0) return null;
+      for (int i = STEP_MESSAGE_PREFIX.length(); i < colon; i++) {
+        final char c = text.charAt(i);
+        if (!Character.isDigit(c) && c != '/') return null;
+      }
+      return text.substring(colon + 2);
+    }
+
+    private void putTail(@NotNull final String identity, @NotNull final ArrayDeque<String> tail) {
+      PerformanceMetrics.increase(PerformanceMetric.exitCodeLogTailMessages, tail.size());
+      myTails.put(identity, new ArrayList<>(tail));
+    }
   }
 
   @Nullable
@@ -63,9 +281,72 @@ public class ProblemTextExtractor {
     }
   }
 
-  public String getBuildProblemText(STestRun sTestRun) {
+  @NotNull
+  public ProblemText getBuildProblemText(@NotNull final STestRun sTestRun) {
     final STest test = sTestRun.getTest();
     final TestName testName = test.getName();
-    return testName.getAsString() + " " + sTestRun.getFullText();
+    final int maxLength = CustomParameters.getProblemTextMaxLength();
+    final CharSequence name = CompositeText.builder(maxLength).append(testName.getAsString()).build();
+    final TestOutput testOutput = new TestOutput(sTestRun, maxLength - name.length());
+
+    return new ProblemText(
+      Arrays.asList(ProblemText.TierKind.NAME, ProblemText.TierKind.FIRST_LINES, ProblemText.TierKind.FULL_TEXT),
+      Arrays.asList(() -> name, testOutput::getFirstLines, testOutput::getRemainingLines));
+  }
+
+  /**
+   * Output of a test run which is requested from the server on the first access and split after the first
+   * {@link CustomParameters#getProblemTextFirstLinesNumber()} lines. Both parts are views of the original string.
+   */
+  private static final class TestOutput {
+    private final STestRun myTestRun;
+    private final int myMaxLength;
+    private String myText;
+    private int myLength;
+    private int myFirstLinesEnd;
+
+    private TestOutput(@NotNull final STestRun testRun, final int maxLength) {
+      myTestRun = testRun;
+      myMaxLength = maxLength;
+    }
+
+    @NotNull
+    CharSequence getFirstLines() {
+      load();
+      return CharBuffer.wrap(myText, 0, myFirstLinesEnd);
+    }
+
+    @NotNull
+    CharSequence getRemainingLines() {
+      load();
+      return CharBuffer.wrap(myText, myFirstLinesEnd, myLength);
+    }
+
+    private void load() {
+      if (myText != null) return;
+
+      final String fullText = myTestRun.getFullText();
+      myText = fullText == null ? "" : fullText;
+      myLength = Math.max(0, Math.min(myText.length(), myMaxLength));
+      myFirstLinesEnd = findLinesEnd(myText, myLength, CustomParameters.getProblemTextFirstLinesNumber());
+    }
+  }
+
+  /**
+   * @return the index after the line break which ends the given number of lines or the length of the text
+   * if it has less lines.
+   */
+  static int findLinesEnd(@NotNull final String text, final int length, final int linesNumber) {
+    if (linesNumber <= 0) return 0;
+
+    int linesLeft = linesNumber;
+    int index = text.indexOf('\n');
+    while (index >= 0 && index < length) {
+      if (--linesLeft == 0) {
+        return index + 1;
+      }
+      index = text.indexOf('\n', index + 1);
+    }
+    return length;
   }
 }
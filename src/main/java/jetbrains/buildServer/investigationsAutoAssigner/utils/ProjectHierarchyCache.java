@@ -0,0 +1,79 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jetbrains.buildServer.BuildProject;
+import jetbrains.buildServer.serverSide.BuildServerAdapter;
+import jetbrains.buildServer.serverSide.BuildServerListenerEventDispatcher;
+import jetbrains.buildServer.serverSide.SProject;
+import jetbrains.buildServer.users.SUser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Ids of a project and all its parents. The sets are computed once per project and dropped all together
+ * when a project is created, moved, removed or restored, as any of these could change the hierarchy.
+ */
+public class ProjectHierarchyCache {
+  @NotNull private final ConcurrentHashMap<String, Set<String>> myHierarchyIds = new ConcurrentHashMap<>();
+
+  public ProjectHierarchyCache(@NotNull final BuildServerListenerEventDispatcher buildServerListenerEventDispatcher) {
+    buildServerListenerEventDispatcher.addListener(new BuildServerAdapter() {
+      @Override
+      public void projectCreated(@NotNull final String projectId, @Nullable final SUser user) {
+        myHierarchyIds.clear();
+      }
+
+      @Override
+      public void projectMoved(@NotNull final SProject project, @NotNull final SProject originalParentProject) {
+        myHierarchyIds.clear();
+      }
+
+      @Override
+      public void projectRemoved(@NotNull final SProject project) {
+        myHierarchyIds.clear();
+      }
+
+      @Override
+      public void projectRestored(@NotNull final String projectId) {
+        myHierarchyIds.clear();
+      }
+    });
+  }
+
+  /**
+   * @return an unmodifiable set with the id of the project followed by the ids of its parents up to the root.
+   */
+  @NotNull
+  public Set<String> getHierarchyIds(@NotNull final BuildProject project) {
+    return myHierarchyIds.computeIfAbsent(project.getProjectId(), projectId -> collectHierarchyIds(project));
+  }
+
+  @NotNull
+  private static Set<String> collectHierarchyIds(@NotNull BuildProject project) {
+    Set<String> result = new LinkedHashSet<>();
+    do {
+      result.add(project.getProjectId());
+      project = project.getParentProject();
+    } while (project != null);
+    return Collections.unmodifiableSet(result);
+  }
+}
@@ -18,10 +18,13 @@ package jetbrains.buildServer.investigationsAutoAssigner;
 
 import java.util.Collections;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.persistent.PreviousResponsibleIndex;
 import jetbrains.buildServer.investigationsAutoAssigner.persistent.StatisticsReporter;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.DelayedAssignmentsProcessor;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.FailedTestAndBuildProblemsProcessor;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ActiveInvestigationsIndex;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.EmailReporter;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemTextExtractor;
 import jetbrains.buildServer.parameters.ParametersProvider;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.impl.auth.SecurityContextImpl;
@@ -89,7 +92,12 @@ public class FailedTestAndBuildProblemsDispatcherTest {
     EmailReporter emailReporter = mock(EmailReporter.class);
     StatisticsReporter sr = mock(StatisticsReporter.class);
 
-    new FailedTestAndBuildProblemsDispatcher(myBsDispatcher, processor, myDelayedAssignmentsProcessor, emailReporter, sr);
+    ProblemTextExtractor problemTextExtractor = mock(ProblemTextExtractor.class);
+    PreviousResponsibleIndex previousResponsibleIndex = mock(PreviousResponsibleIndex.class);
+    ActiveInvestigationsIndex activeInvestigationsIndex = mock(ActiveInvestigationsIndex.class);
+
+    new FailedTestAndBuildProblemsDispatcher(myBsDispatcher, processor, myDelayedAssignmentsProcessor, emailReporter, sr,
+                                             problemTextExtractor, previousResponsibleIndex, activeInvestigationsIndex);
   }
 
   public void Test_BuildProblemsChanged_PersonalBuildFiltered() throws InterruptedException {
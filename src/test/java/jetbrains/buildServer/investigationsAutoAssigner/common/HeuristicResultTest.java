@@ -0,0 +1,108 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.serverSide.STestRun;
+import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import jetbrains.buildServer.users.SUser;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+@Test
+public class HeuristicResultTest extends BaseTestCase {
+  private SUser myUser;
+  private STestRun myTestRun1;
+  private STestRun myTestRun2;
+  private BuildProblem myBuildProblem;
+
+  @BeforeMethod
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myUser = Mockito.mock(SUser.class);
+    when(myUser.getId()).thenReturn(1L);
+    myTestRun1 = Mockito.mock(STestRun.class);
+    when(myTestRun1.getTestRunId()).thenReturn(1);
+    myTestRun2 = Mockito.mock(STestRun.class);
+    when(myTestRun2.getTestRunId()).thenReturn(2);
+    myBuildProblem = Mockito.mock(BuildProblem.class);
+    when(myBuildProblem.getId()).thenReturn(1);
+  }
+
+  public void TestEqualResponsibilitiesAreShared() {
+    HeuristicResult result = new HeuristicResult();
+    result.addResponsibility(myTestRun1, new Responsibility(myUser, "description"));
+    result.addResponsibility(myTestRun2, new Responsibility(myUser, "description"));
+    result.addResponsibility(myBuildProblem, new Responsibility(myUser, "description"));
+
+    Assert.assertSame(result.getResponsibility(myTestRun1), result.getResponsibility(myTestRun2));
+    Assert.assertSame(result.getResponsibility(myTestRun1), result.getResponsibility(myBuildProblem));
+    Assert.assertEquals(result.getAllResponsibilities().size(), 3);
+  }
+
+  public void TestDefaultUserResponsibilityIsNotSharedWithPlainOne() {
+    HeuristicResult result = new HeuristicResult();
+    DefaultUserResponsibility defaultUserResponsibility = new DefaultUserResponsibility(myUser);
+    result.addResponsibility(myTestRun1, defaultUserResponsibility);
+    result.addResponsibility(myTestRun2, new Responsibility(myUser, defaultUserResponsibility.getDescription()));
+
+    Assert.assertTrue(result.getResponsibility(myTestRun1) instanceof DefaultUserResponsibility);
+    Assert.assertFalse(result.getResponsibility(myTestRun2) instanceof DefaultUserResponsibility);
+  }
+
+  public void TestMergeKeepsEntriesAndSharesResponsibilities() {
+    HeuristicResult result = new HeuristicResult();
+    result.addResponsibility(myTestRun1, new Responsibility(myUser, "description"));
+    HeuristicResult another = new HeuristicResult();
+    another.addResponsibility(myTestRun2, new Responsibility(myUser, "description"));
+    another.addResponsibility(myBuildProblem, new Responsibility(myUser, "another description"));
+
+    result.merge(another);
+
+    Assert.assertSame(result.getResponsibility(myTestRun1), result.getResponsibility(myTestRun2));
+    Responsibility problemResponsibility = result.getResponsibility(myBuildProblem);
+    Assert.assertNotNull(problemResponsibility);
+    Assert.assertEquals(problemResponsibility.getDescription(), "another description");
+  }
+
+  @Test(timeOut = 10_000)
+  public void TestMergeInBothDirectionsDoesNotDeadlock() throws InterruptedException {
+    HeuristicResult first = new HeuristicResult();
+    first.addResponsibility(myTestRun1, new Responsibility(myUser, "description"));
+    HeuristicResult second = new HeuristicResult();
+    second.addResponsibility(myTestRun2, new Responsibility(myUser, "description"));
+
+    Thread thread = new Thread(() -> {
+      for (int i = 0; i < 10_000; i++) {
+        first.merge(second);
+      }
+    });
+    thread.start();
+    for (int i = 0; i < 10_000; i++) {
+      second.merge(first);
+    }
+    thread.join();
+
+    Assert.assertNotNull(first.getResponsibility(myTestRun2));
+    Assert.assertNotNull(second.getResponsibility(myTestRun1));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import jetbrains.buildServer.BaseTestCase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class IntHashSetTest extends BaseTestCase {
+  private static final int TRACKED_IDS_NUMBER = 100_000;
+
+  public void TestAddAndContains() {
+    IntHashSet set = new IntHashSet();
+    Assert.assertTrue(set.isEmpty());
+
+    Assert.assertTrue(set.add(1));
+    Assert.assertTrue(set.add(0));
+    Assert.assertTrue(set.add(-7));
+    Assert.assertFalse(set.add(1));
+    Assert.assertFalse(set.add(0));
+
+    Assert.assertEquals(set.size(), 3);
+    Assert.assertTrue(set.contains(0));
+    Assert.assertTrue(set.contains(1));
+    Assert.assertTrue(set.contains(-7));
+    Assert.assertFalse(set.contains(2));
+  }
+
+  public void TestGrowsAndKeepsAllValues() {
+    IntHashSet set = new IntHashSet();
+    Set<Integer> expected = new HashSet<>();
+    Random random = new Random(239);
+    for (int i = 0; i < 10_000; i++) {
+      int value = random.nextInt();
+      Assert.assertEquals(set.add(value), expected.add(value));
+    }
+
+    Assert.assertEquals(set.size(), expected.size());
+    for (Integer value : expected) {
+      Assert.assertTrue(set.contains(value));
+    }
+  }
+
+  public void TestClear() {
+    IntHashSet set = new IntHashSet();
+    set.add(0);
+    set.add(42);
+
+    set.clear();
+
+    Assert.assertTrue(set.isEmpty());
+    Assert.assertFalse(set.contains(0));
+    Assert.assertFalse(set.contains(42));
+  }
+
+  /*
+    The table is kept between a quarter and a half full, so a tracked id takes 8 to 16 bytes
+    while HashSet<Integer> needs a node and a boxed Integer per id.
+   */
+  public void TestCapacityPerTrackedId() {
+    IntHashSet set = new IntHashSet();
+    for (int i = 0; i < TRACKED_IDS_NUMBER; i++) {
+      set.add(i);
+      Assert.assertTrue(set.getCapacity() >= 2 * (set.size() - 1));
+    }
+
+    Assert.assertEquals(set.size(), TRACKED_IDS_NUMBER);
+    Assert.assertTrue(set.getCapacity() <= 4 * TRACKED_IDS_NUMBER);
+    Assert.assertEquals(Integer.bitCount(set.getCapacity()), 1);
+
+    set.clear();
+    Assert.assertTrue(set.getCapacity() <= 4 * TRACKED_IDS_NUMBER);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import jetbrains.buildServer.BaseTestCase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class IntObjectHashMapTest extends BaseTestCase {
+
+  public void TestPutAndGet() {
+    IntObjectHashMap<String> map = new IntObjectHashMap<>();
+    Assert.assertTrue(map.isEmpty());
+
+    Assert.assertNull(map.put(0, "zero"));
+    Assert.assertNull(map.put(1, "one"));
+    Assert.assertNull(map.put(-1, "minus one"));
+    Assert.assertEquals(map.put(1, "uno"), "one");
+
+    Assert.assertEquals(map.size(), 3);
+    Assert.assertEquals(map.get(0), "zero");
+    Assert.assertEquals(map.get(1), "uno");
+    Assert.assertEquals(map.get(-1), "minus one");
+    Assert.assertNull(map.get(2));
+  }
+
+  public void TestGrowsAndKeepsAllEntries() {
+    IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+    Map<Integer, Integer> expected = new HashMap<>();
+    Random random = new Random(239);
+    for (int i = 0; i < 10_000; i++) {
+      int key = random.nextInt(50_000);
+      map.put(key, i);
+      expected.put(key, i);
+    }
+
+    Assert.assertEquals(map.size(), expected.size());
+    for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+      Assert.assertEquals(map.get(entry.getKey()), entry.getValue());
+    }
+  }
+
+  public void TestForEachVisitsAllEntries() {
+    IntObjectHashMap<String> map = new IntObjectHashMap<>();
+    map.put(0, "0");
+    map.put(10, "10");
+    map.put(-20, "-20");
+
+    Map<Integer, String> visited = new HashMap<>();
+    map.forEach(visited::put);
+
+    Assert.assertEquals(visited.size(), 3);
+    for (Map.Entry<Integer, String> entry : visited.entrySet()) {
+      Assert.assertEquals(entry.getValue(), String.valueOf(entry.getKey()));
+    }
+  }
+}
@@ -23,6 +23,7 @@ import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemText;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemTextExtractor;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.users.SUser;
@@ -74,7 +75,8 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
                                               Collections.emptyList());
     myBuildPromotion = Mockito.mock(BuildPromotionEx.class);
     when(mySBuild.getBuildPromotion()).thenReturn(myBuildPromotion);
-    when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("I contain ./path1/path1/path1/filename");
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./path1/path1/path1/filename"));
     myChangeDescriptor = Mockito.mock(ChangeDescriptor.class);
     myVcsModification = Mockito.mock(SVcsModification.class);
     when(myChangeDescriptor.getRelatedVcsChange()).thenReturn(myVcsModification);
@@ -131,7 +133,8 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
   }
 
   public void TestCorrectCase() {
-    when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("I contain ./path1/path1/path1/filename");
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./path1/path1/path1/filename"));
 
     when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
     when(myVcsModification2.getCommitters()).thenReturn(Collections.emptyList());
@@ -143,8 +146,9 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
     assert  responsibility != null;
     Assert.assertEquals(responsibility.getUser(), myUser);
 
-    when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("I contain ./path1/path1/path1/filename and " +
-                                                                       "./path4/path4/path4/filename4");
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./path1/path1/path1/filename and " +
+                                 "./path4/path4/path4/filename4"));
 
     when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
     when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(myUser));
@@ -156,7 +160,8 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
   }
 
   public void TestGitIgnoreCase() {
-    when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("I contain ./no/file/here");
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./no/file/here"));
     VcsFileModification mod = Mockito.mock(VcsFileModification.class);
     when(myVcsModification.getChanges()).thenReturn(Collections.singletonList(mod));
     when(mod.getRelativeFileName()).thenReturn(".gitignore");
@@ -170,8 +175,9 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
   }
 
   public void TestManyCommitters() {
-    when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("I contain ./path1/path1/path1/filename" +
-                                                                       "and ./path4/path4/path4/filename4");
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./path1/path1/path1/filename" +
+                                 "and ./path4/path4/path4/filename4"));
     when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
     when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
     HeuristicResult result = myHeuristic.findResponsibleUser(myHeuristicContext);
@@ -183,8 +189,9 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
   }
 
   public void TestWhiteList() {
-    when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("I contain ./path1/path1/path1/filename" +
-                                                                       "and ./path4/path4/path4/filename4");
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./path1/path1/path1/filename" +
+                                 "and ./path4/path4/path4/filename4"));
     when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
     when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
     HeuristicContext heuristicContexts = new HeuristicContext(mySBuild,
@@ -201,7 +208,8 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
   }
 
   public void TestSmallFilePaths() {
-    when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("I contain ./any/other/build/text");
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./any/other/build/text"));
     VcsFileModification mod = Mockito.mock(VcsFileModification.class);
     when(myVcsModification.getChanges()).thenReturn(Collections.singletonList(mod));
     when(mod.getRelativeFileName()).thenReturn("build.gradle");
@@ -215,7 +223,8 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
   }
 
   public void TestSmallFilePaths2() {
-    when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("I contain ./any/hmbrm/build.gradle");
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./any/hmbrm/build.gradle"));
     VcsFileModification mod = Mockito.mock(VcsFileModification.class);
     when(myVcsModification.getChanges()).thenReturn(Collections.singletonList(mod));
     when(mod.getRelativeFileName()).thenReturn("build.gradle");
@@ -227,4 +236,110 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
 
     Assert.assertFalse(heuristicResult.isEmpty());
   }
+
+  public void TestFullTextIsNotRequestedWhenNameMatches() {
+    final boolean[] fullTextRequested = {false};
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(new ProblemText(Arrays.asList(ProblemText.TierKind.NAME, ProblemText.TierKind.FULL_TEXT),
+                                  Arrays.asList(() -> "I contain ./path1/path1/path1/filename", () -> {
+                                    fullTextRequested[0] = true;
+                                    return "I contain ./path4/path4/path4/filename4";
+                                  })));
+    when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
+    when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
+
+    HeuristicResult heuristicResult = myHeuristic.findResponsibleUser(myHeuristicContext);
+
+    Responsibility responsibility = heuristicResult.getResponsibility(mySTestRun);
+    assert responsibility != null;
+    Assert.assertEquals(responsibility.getUser(), myUser);
+    Assert.assertFalse(fullTextRequested[0]);
+  }
+
+  public void TestFullTextIsLookedThroughWhenNameDoesNotMatch() {
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(new ProblemText(Arrays.asList(ProblemText.TierKind.NAME, ProblemText.TierKind.FULL_TEXT),
+                                  Arrays.asList(() -> "I contain nothing",
+                                                () -> "I contain ./path4/path4/path4/filename4")));
+    when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
+    when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
+
+    HeuristicResult heuristicResult = myHeuristic.findResponsibleUser(myHeuristicContext);
+
+    Responsibility responsibility = heuristicResult.getResponsibility(mySTestRun);
+    assert responsibility != null;
+    Assert.assertEquals(responsibility.getUser(), mySecondUser);
+  }
+
+  public void TestReferenceIsMatchedFromTokenStart() {
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("I contain ./path1/path1/path1/myfilename and ./path4/path4/xpath4/filename4"));
+    when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
+    when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
+
+    HeuristicResult heuristicResult = myHeuristic.findResponsibleUser(myHeuristicContext);
+
+    Assert.assertTrue(heuristicResult.isEmpty());
+  }
+
+  public void TestBareFileNameIsNotMatched() {
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("Unresolved reference: filename"));
+    when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
+    when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
+
+    HeuristicResult heuristicResult = myHeuristic.findResponsibleUser(myHeuristicContext);
+
+    Assert.assertTrue(heuristicResult.isEmpty());
+  }
+
+  public void TestLongerFileNameDoesNotMatchChangedFile() {
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("java.lang.AssertionError\n" +
+                                 "\tat com.foo.BarTest.testIt(BarTest.java:12)\n" +
+                                 "\tat com.foo.UtilsHelper.check(UtilsHelper.java:12)"));
+    VcsFileModification mod = Mockito.mock(VcsFileModification.class);
+    VcsFileModification mod2 = Mockito.mock(VcsFileModification.class);
+    when(mod.getRelativeFileName()).thenReturn("src/main/java/com/foo/Bar.java");
+    when(mod2.getRelativeFileName()).thenReturn("src/main/kotlin/com/foo/Utils.kt");
+    when(myVcsModification2.getChanges()).thenReturn(Arrays.asList(mod, mod2));
+    when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
+    when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
+
+    HeuristicResult heuristicResult = myHeuristic.findResponsibleUser(myHeuristicContext);
+
+    Assert.assertTrue(heuristicResult.isEmpty());
+  }
+
+  public void TestFileNameFollowedByExtensionMatches() {
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("FAIL src/view/page.test.js"));
+    VcsFileModification mod = Mockito.mock(VcsFileModification.class);
+    when(mod.getRelativeFileName()).thenReturn("src/view/page.js");
+    when(myVcsModification2.getChanges()).thenReturn(Collections.singletonList(mod));
+    when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
+    when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
+
+    HeuristicResult heuristicResult = myHeuristic.findResponsibleUser(myHeuristicContext);
+
+    Responsibility responsibility = heuristicResult.getResponsibility(mySTestRun);
+    assert responsibility != null;
+    Assert.assertEquals(responsibility.getUser(), mySecondUser);
+  }
+
+  public void TestKotlinFileClassMatchesSourceFile() {
+    when(myProblemTextExtractor.getBuildProblemText(any()))
+      .thenReturn(ProblemText.of("\tat com.foo.UtilsKt.check(Utils.kt:3)"));
+    VcsFileModification mod = Mockito.mock(VcsFileModification.class);
+    when(mod.getRelativeFileName()).thenReturn("src/main/kotlin/com/foo/Utils.kt");
+    when(myVcsModification2.getChanges()).thenReturn(Collections.singletonList(mod));
+    when(myVcsModification.getCommitters()).thenReturn(Collections.singletonList(myUser));
+    when(myVcsModification2.getCommitters()).thenReturn(Collections.singletonList(mySecondUser));
+
+    HeuristicResult heuristicResult = myHeuristic.findResponsibleUser(myHeuristicContext);
+
+    Responsibility responsibility = heuristicResult.getResponsibility(mySTestRun);
+    assert responsibility != null;
+    Assert.assertEquals(responsibility.getUser(), mySecondUser);
+  }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
+
+import java.util.Arrays;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemText;
+import org.jetbrains.annotations.NotNull;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class FailureClustersTest extends BaseTestCase {
+
+  public void TestFingerprintIgnoresNumbersAndAddresses() {
+    long fingerprint = FailureClusters.getFingerprint(
+      "java.lang.IllegalStateException: Connection@6d06d69c refused after 3012 ms\n" +
+      "\tat com.foo.Client.connect(Client.java:42)");
+
+    Assert.assertEquals(FailureClusters.getFingerprint(
+      "java.lang.IllegalStateException: Connection@1b2c3d refused after 15 ms\n" +
+      "    at com.foo.Client.connect(Client.java:57)"), fingerprint);
+    Assert.assertNotEquals(FailureClusters.getFingerprint(
+      "java.lang.IllegalStateException: Connection@6d06d69c refused after 3012 ms\n" +
+      "\tat com.foo.Server.accept(Server.java:42)"), fingerprint);
+  }
+
+  public void TestResultIsSharedWithinCluster() {
+    FailureClusters failureClusters = new FailureClusters();
+    int[] evaluations = {0};
+
+    failureClusters.computeIfAbsent(ProblemText.of("at com.foo.Client.connect(Client.java:42)"), 0, () -> {
+      evaluations[0]++;
+      return null;
+    });
+    failureClusters.computeIfAbsent(ProblemText.of("at com.foo.Client.connect(Client.java:43)"), 0, () -> {
+      evaluations[0]++;
+      return null;
+    });
+
+    Assert.assertEquals(evaluations[0], 1);
+  }
+
+  public void TestFingerprintKeepsDigitsInNamesAndWords() {
+    Assert.assertNotEquals(FailureClusters.getFingerprint("at com.foo.Foo1Test.test(Foo1Test.java:42)"),
+                           FailureClusters.getFingerprint("at com.foo.Foo2Test.test(Foo2Test.java:42)"));
+    Assert.assertNotEquals(FailureClusters.getFingerprint("at com.foo.Client2.connect(Client2.java:42)"),
+                           FailureClusters.getFingerprint("at com.foo.Client.connect(Client.java:42)"));
+    Assert.assertNotEquals(FailureClusters.getFingerprint("Mail to user@example.com was not sent"),
+                           FailureClusters.getFingerprint("Mail to user@xample.com was not sent"));
+    Assert.assertNotEquals(FailureClusters.getFingerprint("Method marked as @Deprecated was called"),
+                           FailureClusters.getFingerprint("Method marked as @Dprecated was called"));
+    Assert.assertEquals(FailureClusters.getFingerprint("Pointer 0x7ffe3a9c is not valid"),
+                        FailureClusters.getFingerprint("Pointer 0x1b2c is not valid"));
+  }
+
+  public void TestSameFirstLinesWithDifferentOutputAreNotShared() {
+    FailureClusters failureClusters = new FailureClusters();
+    int[] evaluations = {0};
+
+    failureClusters.computeIfAbsent(testText("java.lang.AssertionError", "at com.foo.Client.connect(Client.java:42)"),
+                                    1,
+                                    () -> {
+                                      evaluations[0]++;
+                                      return null;
+                                    });
+    failureClusters.computeIfAbsent(testText("java.lang.AssertionError", "at com.foo.Server.accept(Server.java:42)"),
+                                    1,
+                                    () -> {
+                                      evaluations[0]++;
+                                      return null;
+                                    });
+    failureClusters.computeIfAbsent(testText("java.lang.AssertionError", "at com.foo.Server.accept(Server.java:57)"),
+                                    1,
+                                    () -> {
+                                      evaluations[0]++;
+                                      return null;
+                                    });
+
+    Assert.assertEquals(evaluations[0], 2);
+  }
+
+  @NotNull
+  private static ProblemText testText(@NotNull final String firstLines, @NotNull final String remainingLines) {
+    return new ProblemText(
+      Arrays.asList(ProblemText.TierKind.NAME, ProblemText.TierKind.FIRST_LINES, ProblemText.TierKind.FULL_TEXT),
+      Arrays.asList(() -> "test.Name", () -> firstLines, () -> remainingLines));
+  }
+}
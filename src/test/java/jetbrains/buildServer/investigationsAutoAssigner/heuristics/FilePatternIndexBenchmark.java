@@ -0,0 +1,120 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.AhoCorasickMatcher;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.VcsFileModification;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark of {@link FilePatternIndex} against the substring search of the file patterns: a big merge with
+ * thousands of changed files and a long stack trace. Is not a part of the regular test run, use the
+ * {@code benchmark} Gradle task.
+ */
+@Test(groups = "benchmark")
+public class FilePatternIndexBenchmark extends BaseTestCase {
+  private static final int FILES_NUMBER = 3000;
+  private static final int FILES_PER_CHANGE = 100;
+  private static final int PROBLEMS_NUMBER = 5;
+
+  public void BenchmarkAgainstSubstringSearch() {
+    List<String> filePaths = new ArrayList<>();
+    List<String> patterns = new ArrayList<>();
+    for (int i = 0; i < FILES_NUMBER; i++) {
+      String[] parts = {"module" + i % 37, "package" + i % 101, "SomeClassName" + i};
+      filePaths.add("src/main/java/" + String.join("/", parts) + ".java");
+      // the patterns which were looked for as substrings before the index
+      patterns.add(String.join(".", parts));
+      patterns.add(String.join("/", parts));
+      patterns.add(String.join("\\", parts));
+    }
+    String text = createStackTrace();
+
+    long start = System.nanoTime();
+    BitSet expected = new BitSet();
+    for (int problem = 0; problem < PROBLEMS_NUMBER; problem++) {
+      expected.clear();
+      for (int i = 0; i < patterns.size(); i++) {
+        if (text.contains(patterns.get(i))) {
+          expected.set(i);
+        }
+      }
+    }
+    long containsTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    AhoCorasickMatcher matcher = new AhoCorasickMatcher(patterns);
+    BitSet automatonMatches = null;
+    for (int problem = 0; problem < PROBLEMS_NUMBER; problem++) {
+      automatonMatches = matcher.findMatches(text);
+    }
+    long automatonTime = System.nanoTime() - start;
+
+    List<SVcsModification> vcsChanges = createVcsChanges(filePaths);
+    start = System.nanoTime();
+    FilePatternIndex index = FilePatternIndex.create(vcsChanges);
+    BitSet indexMatches = null;
+    for (int problem = 0; problem < PROBLEMS_NUMBER; problem++) {
+      indexMatches = index.findMatches(text);
+    }
+    long indexTime = System.nanoTime() - start;
+
+    System.out.println(String.format("%d files, %d chars of text, %d problems: " +
+                                     "contains loop %d ms, automaton %d ms, token index %d ms",
+                                     FILES_NUMBER, text.length(), PROBLEMS_NUMBER, containsTime / 1_000_000,
+                                     automatonTime / 1_000_000, indexTime / 1_000_000));
+    Assert.assertEquals(automatonMatches, expected);
+    Assert.assertEquals(expected.cardinality(), 1);
+    Assert.assertEquals(indexMatches.cardinality(), 1);
+    String[] brokenFiles = index.getBrokenFiles(indexMatches);
+    Assert.assertEquals(brokenFiles[2021 / FILES_PER_CHANGE], filePaths.get(2021));
+  }
+
+  private static String createStackTrace() {
+    StringBuilder textBuilder = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      textBuilder.append("\tat module").append(i % 37).append(".package").append(i % 101)
+                 .append(".OtherClassName").append(i).append(".method(OtherClassName.java:").append(i).append(")\n");
+    }
+    textBuilder.append("\tat module23.package1.SomeClassName2021.method(SomeClassName2021.java:1)\n");
+    return textBuilder.toString();
+  }
+
+  private static List<SVcsModification> createVcsChanges(List<String> filePaths) {
+    List<SVcsModification> vcsChanges = new ArrayList<>();
+    for (int from = 0; from < filePaths.size(); from += FILES_PER_CHANGE) {
+      List<VcsFileModification> modifications = new ArrayList<>();
+      for (String filePath : filePaths.subList(from, Math.min(filePaths.size(), from + FILES_PER_CHANGE))) {
+        VcsFileModification modification = Mockito.mock(VcsFileModification.class);
+        when(modification.getRelativeFileName()).thenReturn(filePath);
+        modifications.add(modification);
+      }
+      SVcsModification vcsChange = Mockito.mock(SVcsModification.class);
+      when(vcsChange.getChanges()).thenReturn(modifications);
+      vcsChanges.add(vcsChange);
+    }
+    return vcsChanges;
+  }
+}
@@ -105,4 +105,16 @@ public class OneCommitterHeuristicTest extends BaseTestCase {
 
     Assert.assertFalse(heuristicResult.isEmpty());
   }
+
+  public void TestIsApplicableOnlyWithOneCommitter() {
+    when(myUserSetMock.getUsers()).thenReturn(new HashSet<>(Arrays.asList(myFirstUser, mySecondUser)));
+    Assert.assertFalse(myHeuristic.isApplicable(myHeuristicContext));
+
+    HeuristicContext hc = new HeuristicContext(mySBuild,
+                                               mySProject,
+                                               Collections.emptyList(),
+                                               Collections.singletonList(mySTestRun),
+                                               Collections.singletonList(mySecondUser.getUsername()));
+    Assert.assertTrue(myHeuristic.isApplicable(hc));
+  }
 }
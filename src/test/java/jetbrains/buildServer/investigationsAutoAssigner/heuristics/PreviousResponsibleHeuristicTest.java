@@ -21,6 +21,7 @@ import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.BuildProblemData;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.persistent.PreviousResponsibleIndex;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
 import jetbrains.buildServer.serverSide.*;
@@ -31,6 +32,10 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -38,6 +43,7 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
 
   private PreviousResponsibleHeuristic myHeuristic;
   private InvestigationsManager myInvestigationsManager;
+  private PreviousResponsibleIndex myPreviousResponsibleIndex;
   private SBuild mySBuild;
   private SProject mySProject;
   private BuildProblem myBuildProblem;
@@ -52,6 +58,7 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
   protected void setUp() throws Exception {
     super.setUp();
     myInvestigationsManager = Mockito.mock(InvestigationsManager.class);
+    myPreviousResponsibleIndex = Mockito.mock(PreviousResponsibleIndex.class);
     mySBuild = Mockito.mock(SBuild.class);
     final SBuildType sBuildType = Mockito.mock(jetbrains.buildServer.serverSide.SBuildType.class);
     mySProject = Mockito.mock(SProject.class);
@@ -61,11 +68,11 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
     mySTest = Mockito.mock(STest.class);
 
     when(myUser.getUsername()).thenReturn("testUser");
-    myHeuristic = new PreviousResponsibleHeuristic(myInvestigationsManager);
+    myHeuristic = new PreviousResponsibleHeuristic(myInvestigationsManager, myPreviousResponsibleIndex);
     when(myBuildProblem.getBuildProblemData()).thenReturn(buildProblemData);
     when(buildProblemData.getType()).thenReturn("Type");
     when(mySBuild.getFullName()).thenReturn("Full SBuild Name");
-    when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, myBuildProblem)).thenReturn(myUser);
+    when(myInvestigationsManager.findAmongEntries(mySProject, mySBuild, myBuildProblem)).thenReturn(myUser);
     when(mySBuild.getBuildType()).thenReturn(sBuildType);
     when(sBuildType.getProject()).thenReturn(mySProject);
     when(mySTest.getTestNameId()).thenReturn(12982318457L);
@@ -85,7 +92,7 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
   }
 
   public void TestBuildProblemInfo_ResponsibleFound() {
-    when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, myBuildProblem)).thenReturn(myUser);
+    when(myInvestigationsManager.findAmongEntries(mySProject, mySBuild, myBuildProblem)).thenReturn(myUser);
 
     HeuristicResult result = myHeuristic.findResponsibleUser(myBuildHeuristicContext);
 
@@ -96,7 +103,7 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
   }
 
   public void TestBuildProblemInfo_ResponsibleNotFound() {
-    when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, myBuildProblem)).thenReturn(null);
+    when(myInvestigationsManager.findAmongEntries(mySProject, mySBuild, myBuildProblem)).thenReturn(null);
 
     HeuristicResult result = myHeuristic.findResponsibleUser(myBuildHeuristicContext);
 //
@@ -123,6 +130,42 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
     Assert.assertTrue(result.isEmpty());
   }
 
+  public void TestTestProblemInfo_ResponsibleFoundInIndex() {
+    when(myPreviousResponsibleIndex.containsTest(any(), any())).thenReturn(true);
+    when(myPreviousResponsibleIndex.findTestResponsible(any(), any())).thenReturn(myUser);
+
+    HeuristicResult result = myHeuristic.findResponsibleUser(myTestHeuristicContext);
+
+    Responsibility responsibility = result.getResponsibility(mySTestRun);
+    assert responsibility != null;
+    Assert.assertEquals(responsibility.getUser(), myUser);
+    verify(myInvestigationsManager, never()).findPreviousResponsible(any(), any(), any(STest.class));
+    verify(myInvestigationsManager, never()).findInAudit(any(), any());
+  }
+
+  public void TestBuildProblemInfo_OnlyAuditResultIsRemembered() {
+    HeuristicResult result = myHeuristic.findResponsibleUser(myBuildHeuristicContext);
+
+    Assert.assertFalse(result.isEmpty());
+    verify(myPreviousResponsibleIndex, never()).rememberBuildProblemResponsible(any(), anyInt(), any());
+
+    when(myInvestigationsManager.findAmongEntries(mySProject, mySBuild, myBuildProblem)).thenReturn(null);
+    when(myInvestigationsManager.findInAudit(myBuildProblem)).thenReturn(myUser);
+    result = myHeuristic.findResponsibleUser(myBuildHeuristicContext);
+
+    Assert.assertFalse(result.isEmpty());
+    verify(myPreviousResponsibleIndex).rememberBuildProblemResponsible(mySProject, myBuildProblem.getId(), myUser);
+  }
+
+  public void TestTestProblemInfo_ResponsibleFromInvestigationsIsNotRemembered() {
+    when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, mySTest)).thenReturn(myUser);
+
+    myHeuristic.findResponsibleUser(myTestHeuristicContext);
+
+    verify(myPreviousResponsibleIndex, never()).rememberTestResponsible(any(), any(), any());
+    verify(myInvestigationsManager, never()).findInAudit(any(), any());
+  }
+
   public void TestWhiteList() {
     when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, mySTest)).thenReturn(myUser);
     HeuristicContext testHC = new HeuristicContext(mySBuild,
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
+
+import java.util.HashSet;
+import java.util.Set;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CompositeText;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class StackTraceParserTest extends BaseTestCase {
+
+  public void TestFileKeys() {
+    Assert.assertEquals(StackTraceParser.getFileKey("src/main/java/com/foo/Bar.java"), "com/foo/Bar");
+    Assert.assertEquals(StackTraceParser.getFileKey("./path1/path1/path1/filename"), "path1/path1/filename");
+    Assert.assertEquals(StackTraceParser.getFileKey("app\\Program.cs"), "app/Program");
+    Assert.assertEquals(StackTraceParser.getFileKey("build.gradle"), "build.gradle");
+    Assert.assertNull(StackTraceParser.getFileKey(".gitignore"));
+  }
+
+  public void TestJavaStackTrace() {
+    Set<String> keys = parse("java.lang.AssertionError\n" +
+                             "\tat com.foo.Bar$Inner.method(Bar.java:12)\n" +
+                             "\tat com.foo.UtilsKt.check(Utils.kt:3)");
+
+    Assert.assertTrue(keys.contains("com/foo/Bar"));
+    Assert.assertTrue(keys.contains("com/foo/Utils"));
+    Assert.assertFalse(keys.contains("Utils"));
+  }
+
+  public void TestDotNetStackTrace() {
+    Set<String> keys = parse("   at App.Core.Service.Run() in C:\\work\\src\\App\\Core\\Service.cs:line 42");
+
+    Assert.assertTrue(keys.contains("App/Core/Service"));
+    Assert.assertTrue(keys.contains("Service.cs"));
+  }
+
+  public void TestPythonAndJavaScriptStackTraces() {
+    Set<String> keys = parse("  File \"/agent/work/pkg/module.py\", line 3, in test_it\n" +
+                             "    at render (/agent/work/src/view/page.js:12:5)");
+
+    Assert.assertTrue(keys.contains("work/pkg/module"));
+    Assert.assertTrue(keys.contains("pkg/module"));
+    Assert.assertTrue(keys.contains("src/view/page"));
+  }
+
+  public void TestCompilerMessages() {
+    Set<String> keys = parse("src/app/Main.java:10: error: cannot find symbol\n" +
+                             "e: /src/app/Other.kt: (3, 7): Unresolved reference: Utils.");
+
+    Assert.assertTrue(keys.contains("src/app/Main"));
+    Assert.assertTrue(keys.contains("src/app/Other"));
+    Assert.assertFalse(keys.contains("Utils"));
+  }
+
+  public void TestReferenceSpanningTextParts() {
+    Set<String> keys = parse(CompositeText.builder(100).append("at pa").append("th/Fi").append("le.java:1").build());
+
+    Assert.assertTrue(keys.contains("path/File"));
+  }
+
+  private static Set<String> parse(CharSequence text) {
+    Set<String> keys = new HashSet<>();
+    StackTraceParser.parse(text, keys::add);
+    return keys;
+  }
+}
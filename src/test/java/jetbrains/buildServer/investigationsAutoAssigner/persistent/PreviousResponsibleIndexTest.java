@@ -0,0 +1,161 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Date;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.responsibility.ResponsibilityEntry;
+import jetbrains.buildServer.serverSide.SProject;
+import jetbrains.buildServer.serverSide.ServerPaths;
+import jetbrains.buildServer.serverSide.executors.ExecutorServices;
+import jetbrains.buildServer.serverSide.impl.executors.CommonExecutorService;
+import jetbrains.buildServer.tests.TestName;
+import jetbrains.buildServer.users.SUser;
+import jetbrains.buildServer.users.UserModel;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Test
+public class PreviousResponsibleIndexTest extends BaseTestCase {
+  private ServerPaths myServerPaths;
+  private ExecutorServices myExecutorServices;
+  private CommonExecutorService myExecutorService;
+  private UserModel myUserModel;
+  private SProject myProject;
+  private SProject myParentProject;
+  private SUser myUser;
+  private SUser mySecondUser;
+  private TestName myTestName;
+
+  @BeforeMethod
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myServerPaths = Mockito.mock(ServerPaths.class);
+    when(myServerPaths.getPluginDataDirectory()).thenReturn(Files.createTempDirectory("pluginData").toFile());
+    myExecutorService = Mockito.mock(CommonExecutorService.class);
+    myExecutorServices = Mockito.mock(ExecutorServices.class);
+    when(myExecutorServices.getNormalExecutorService()).thenReturn(myExecutorService);
+
+    myUser = Mockito.mock(SUser.class);
+    when(myUser.getId()).thenReturn(1L);
+    mySecondUser = Mockito.mock(SUser.class);
+    when(mySecondUser.getId()).thenReturn(2L);
+    myUserModel = Mockito.mock(UserModel.class);
+    when(myUserModel.findUserById(1L)).thenReturn(myUser);
+    when(myUserModel.findUserById(2L)).thenReturn(mySecondUser);
+
+    myProject = Mockito.mock(SProject.class);
+    myParentProject = Mockito.mock(SProject.class);
+    when(myProject.getProjectId()).thenReturn("project");
+    when(myProject.getParentProject()).thenReturn(myParentProject);
+    when(myParentProject.getProjectId()).thenReturn("parent");
+    myTestName = new TestName("com.foo.BarTest.testSomething");
+  }
+
+  public void TestNewestEventInHierarchyWins() {
+    PreviousResponsibleIndex index = new PreviousResponsibleIndex(myServerPaths, myExecutorServices, myUserModel);
+    Assert.assertFalse(index.containsTest(myProject, myTestName));
+
+    index.testsResponsibleChanged(myProject, Collections.singletonList(myTestName), createEntry(myUser, 1000));
+    index.testsResponsibleChanged(myParentProject,
+                                  Collections.singletonList(myTestName),
+                                  createEntry(mySecondUser, 2000));
+
+    Assert.assertTrue(index.containsTest(myProject, myTestName));
+    Assert.assertEquals(index.findTestResponsible(myProject, myTestName), mySecondUser);
+    Assert.assertEquals(index.findTestResponsible(myParentProject, myTestName), mySecondUser);
+  }
+
+  public void TestRememberedResponsibleIsOverriddenByEvents() {
+    PreviousResponsibleIndex index = new PreviousResponsibleIndex(myServerPaths, myExecutorServices, myUserModel);
+
+    index.rememberTestResponsible(myProject, myTestName, null);
+    Assert.assertTrue(index.containsTest(myProject, myTestName));
+    Assert.assertNull(index.findTestResponsible(myProject, myTestName));
+
+    index.testsResponsibleChanged(myParentProject, Collections.singletonList(myTestName), createEntry(myUser, 1000));
+    Assert.assertEquals(index.findTestResponsible(myProject, myTestName), myUser);
+  }
+
+  public void TestIndexIsSavedAndRead() {
+    PreviousResponsibleIndex index = new PreviousResponsibleIndex(myServerPaths, myExecutorServices, myUserModel);
+    index.testsResponsibleChanged(myProject, Collections.singletonList(myTestName), createEntry(myUser, 1000));
+    index.rememberBuildProblemResponsible(myProject, 5, mySecondUser);
+
+    ArgumentCaptor<Runnable> saveTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(myExecutorService).scheduleWithFixedDelay(saveTask.capture(), anyLong(), anyLong(), any());
+    saveTask.getValue().run();
+
+    PreviousResponsibleIndex restored = new PreviousResponsibleIndex(myServerPaths, myExecutorServices, myUserModel);
+    Assert.assertEquals(restored.findTestResponsible(myProject, myTestName), myUser);
+    Assert.assertEquals(restored.findBuildProblemResponsible(myProject, 5), mySecondUser);
+    Assert.assertFalse(restored.containsBuildProblem(myProject, 6));
+  }
+
+  public void TestNobodyFoundIsNotSaved() {
+    PreviousResponsibleIndex index = new PreviousResponsibleIndex(myServerPaths, myExecutorServices, myUserModel);
+    index.rememberTestResponsible(myProject, myTestName, null);
+    index.rememberBuildProblemResponsible(myProject, 5, null);
+    Assert.assertTrue(index.containsTest(myProject, myTestName));
+    Assert.assertTrue(index.containsBuildProblem(myProject, 5));
+
+    ArgumentCaptor<Runnable> saveTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(myExecutorService).scheduleWithFixedDelay(saveTask.capture(), anyLong(), anyLong(), any());
+    saveTask.getValue().run();
+
+    PreviousResponsibleIndex restored = new PreviousResponsibleIndex(myServerPaths, myExecutorServices, myUserModel);
+    Assert.assertFalse(restored.containsTest(myProject, myTestName));
+    Assert.assertFalse(restored.containsBuildProblem(myProject, 5));
+  }
+
+  public void TestChangesAreAppendedToSavedIndex() {
+    PreviousResponsibleIndex index = new PreviousResponsibleIndex(myServerPaths, myExecutorServices, myUserModel);
+    ArgumentCaptor<Runnable> saveTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(myExecutorService).scheduleWithFixedDelay(saveTask.capture(), anyLong(), anyLong(), any());
+
+    index.testsResponsibleChanged(myProject, Collections.singletonList(myTestName), createEntry(myUser, 1000));
+    saveTask.getValue().run();
+    index.rememberBuildProblemResponsible(myProject, 5, mySecondUser);
+    index.testsResponsibleChanged(myProject, Collections.singletonList(myTestName), createEntry(mySecondUser, 2000));
+    saveTask.getValue().run();
+    // nothing has changed, nothing is written
+    saveTask.getValue().run();
+
+    PreviousResponsibleIndex restored = new PreviousResponsibleIndex(myServerPaths, myExecutorServices, myUserModel);
+    Assert.assertEquals(restored.findTestResponsible(myProject, myTestName), mySecondUser);
+    Assert.assertEquals(restored.findBuildProblemResponsible(myProject, 5), mySecondUser);
+  }
+
+  private static ResponsibilityEntry createEntry(SUser user, long timestamp) {
+    ResponsibilityEntry entry = Mockito.mock(ResponsibilityEntry.class);
+    when(entry.getState()).thenReturn(ResponsibilityEntry.State.TAKEN);
+    when(entry.getResponsibleUser()).thenReturn(user);
+    when(entry.getTimestamp()).thenReturn(new Date(timestamp));
+    return entry;
+  }
+}
@@ -16,6 +16,8 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.persistent;
 
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetric;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
 import jetbrains.buildServer.serverSide.executors.ExecutorServices;
 import jetbrains.buildServer.serverSide.impl.executors.CommonExecutorService;
 import org.mockito.Mockito;
@@ -73,9 +75,17 @@ public class StatisticsReporterTest {
     myStatisticsReporter.reportClickedButton();
     myStatisticsReporter.reportAssignedInvestigations(3);
     myStatisticsReporter.reportWrongInvestigation(4);
-    Assert.assertTrue(myStatisticsReporter.generateReport().contains("1"));
-    Assert.assertTrue(myStatisticsReporter.generateReport().contains("2"));
-    Assert.assertTrue(myStatisticsReporter.generateReport().contains("3"));
-    Assert.assertTrue(myStatisticsReporter.generateReport().contains("4"));
+    Assert.assertTrue(myStatisticsReporter.generateReport().contains("1 shown suggestions"));
+    Assert.assertTrue(myStatisticsReporter.generateReport().contains("2 of assignments"));
+    Assert.assertTrue(myStatisticsReporter.generateReport().contains("3 investigations assigned"));
+    Assert.assertTrue(myStatisticsReporter.generateReport().contains("4 of them were wrong"));
+  }
+
+  @Test
+  public void testReportContainsPerformanceMetrics() {
+    PerformanceMetrics.increment(PerformanceMetric.heuristicsSkipped);
+
+    Assert.assertTrue(myStatisticsReporter.generateReport().contains(
+      "heuristicsSkipped: " + PerformanceMetrics.get(PerformanceMetric.heuristicsSkipped) + ";"));
   }
 }
\ No newline at end of file
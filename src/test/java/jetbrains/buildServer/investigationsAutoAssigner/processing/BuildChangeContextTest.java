@@ -0,0 +1,115 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.serverSide.BuildPromotionEx;
+import jetbrains.buildServer.serverSide.ChangeDescriptor;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.serverSide.SBuildFeatureDescriptor;
+import jetbrains.buildServer.users.SUser;
+import jetbrains.buildServer.users.UserSet;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+@Test
+public class BuildChangeContextTest extends BaseTestCase {
+  private SBuild mySBuild;
+  private BuildPromotionEx myBuildPromotion;
+  private SUser myUser1;
+  private SUser myUser2;
+
+  @BeforeMethod
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    mySBuild = Mockito.mock(SBuild.class);
+    myBuildPromotion = Mockito.mock(BuildPromotionEx.class);
+    when(mySBuild.getBuildPromotion()).thenReturn(myBuildPromotion);
+
+    myUser1 = Mockito.mock(SUser.class);
+    when(myUser1.getId()).thenReturn(1L);
+    when(myUser1.getUsername()).thenReturn("user1");
+    myUser2 = Mockito.mock(SUser.class);
+    when(myUser2.getId()).thenReturn(2L);
+    when(myUser2.getUsername()).thenReturn("user2");
+    UserSet userSet = Mockito.mock(UserSet.class);
+    when(userSet.getUsers()).thenReturn(new HashSet<>(Arrays.asList(myUser1, myUser2)));
+    when(mySBuild.getCommitters(SelectPrevBuildPolicy.SINCE_LAST_BUILD)).thenReturn(userSet);
+
+    ChangeDescriptor changeDescriptor = Mockito.mock(ChangeDescriptor.class);
+    when(changeDescriptor.getRelatedVcsChange()).thenReturn(Mockito.mock(SVcsModification.class));
+    ChangeDescriptor withoutVcsChange = Mockito.mock(ChangeDescriptor.class);
+    when(myBuildPromotion.getDetectedChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, false))
+      .thenReturn(Arrays.asList(changeDescriptor, withoutVcsChange));
+  }
+
+  public void TestChangesAndCommittersAreRequestedOnce() {
+    BuildChangeContext buildChangeContext = new BuildChangeContext(mySBuild);
+
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(buildChangeContext.getChanges().size(), 1);
+      Assert.assertEquals(buildChangeContext.getCommitters().size(), 2);
+      Assert.assertEquals(buildChangeContext.getCommittersIds(), new HashSet<>(Arrays.asList(1L, 2L)));
+    }
+
+    Mockito.verify(myBuildPromotion, Mockito.times(1))
+           .getDetectedChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, false);
+    Mockito.verify(mySBuild, Mockito.times(1)).getCommitters(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
+  }
+
+  public void TestNothingIsRequestedUntilNeeded() {
+    new BuildChangeContext(mySBuild);
+
+    Mockito.verify(mySBuild, Mockito.never()).getBuildPromotion();
+    Mockito.verify(mySBuild, Mockito.never()).getCommitters(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
+  }
+
+  public void TestIgnoredUsers() {
+    BuildChangeContext buildChangeContext =
+      new BuildChangeContext(mySBuild, Collections.singletonList(myUser1.getUsername()));
+
+    Assert.assertTrue(buildChangeContext.isIgnored(myUser1));
+    Assert.assertFalse(buildChangeContext.isIgnored(myUser2));
+  }
+
+  public void TestBuildFeatureSettingsAreReadOncePerPass() {
+    SBuildFeatureDescriptor descriptor = Mockito.mock(SBuildFeatureDescriptor.class);
+    when(descriptor.getParameters()).thenReturn(Collections.singletonMap(Constants.USERS_TO_IGNORE, "user1"));
+    when(mySBuild.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
+      .thenReturn(Collections.singletonList(descriptor));
+    BuildChangeContext buildChangeContext = new BuildChangeContext(mySBuild);
+
+    for (int i = 0; i < 3; i++) {
+      Assert.assertTrue(buildChangeContext.isIgnored(myUser1));
+      Assert.assertFalse(buildChangeContext.isIgnored(myUser2));
+      Assert.assertTrue(buildChangeContext.getBuildFeatureSettings().isEnabled());
+    }
+
+    Mockito.verify(mySBuild, Mockito.times(1)).getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE);
+  }
+}
@@ -52,6 +52,7 @@ public class BuildProblemsAssignerTest extends BaseTestCase {
   private BuildProblemImpl myBuildProblem2;
   private User myUser2;
   private SBuild mySBuild;
+  private BuildChangeContext myBuildChangeContext;
   private BuildProblemsAssigner myBuildProblemsAssigner;
 
   @BeforeMethod
@@ -65,6 +66,7 @@ public class BuildProblemsAssignerTest extends BaseTestCase {
 
     mySProject = Mockito.mock(SProject.class);
     mySBuild = Mockito.mock(SBuild.class);
+    myBuildChangeContext = new BuildChangeContext(mySBuild);
     myUser1 = Mockito.mock(UserImpl.class);
     when(myUser1.getUsername()).thenReturn("user1");
     when(myUser1.getId()).thenReturn(1L);
@@ -84,46 +86,46 @@ public class BuildProblemsAssignerTest extends BaseTestCase {
   }
 
   public void Test_NoBuildProblems() {
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.emptyList());
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.emptyList());
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.never()).setBuildProblemResponsibility(anyList(), any(), any());
   }
 
   public void Test_NoResponsibilitiesFound() {
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.singletonList(myBuildProblem1));
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.singletonList(myBuildProblem1));
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.never()).setBuildProblemResponsibility(anyList(), any(), any());
   }
 
   public void Test_OneResponsibilityFound() {
     myHeuristicResult.addResponsibility(myBuildProblem1, new Responsibility(myUser1, "any description"));
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.singletonList(myBuildProblem1));
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.singletonList(myBuildProblem1));
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.only()).setBuildProblemResponsibility(anyList(), any(), any());
   }
 
   public void Test_TwoSameResponsibilitiesFound() {
     myHeuristicResult.addResponsibility(myBuildProblem1, new Responsibility(myUser1, "any description"));
     myHeuristicResult.addResponsibility(myBuildProblem2, new Responsibility(myUser1, "any description"));
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Arrays.asList(myBuildProblem1, myBuildProblem2));
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Arrays.asList(myBuildProblem1, myBuildProblem2));
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.only()).setBuildProblemResponsibility(anyList(), any(), any());
   }
 
   public void Test_TwoDifferentResponsibilitiesFound() {
     myHeuristicResult.addResponsibility(myBuildProblem1, new Responsibility(myUser1, "any description"));
     myHeuristicResult.addResponsibility(myBuildProblem2, new Responsibility(myUser2, "any description"));
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Arrays.asList(myBuildProblem1, myBuildProblem2));
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Arrays.asList(myBuildProblem1, myBuildProblem2));
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.times(2)).setBuildProblemResponsibility(anyList(), any(), any());
 
     myHeuristicResult = new HeuristicResult();
     Mockito.clearInvocations(myBuildProblemResponsibilityFacade);
     myHeuristicResult.addResponsibility(myBuildProblem1, new Responsibility(myUser1, "any description"));
     myHeuristicResult.addResponsibility(myBuildProblem2, new Responsibility(myUser1, "any description 2"));
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Arrays.asList(myBuildProblem1, myBuildProblem2));
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Arrays.asList(myBuildProblem1, myBuildProblem2));
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.times(2)).setBuildProblemResponsibility(anyList(), any(), any());
 
     myHeuristicResult = new HeuristicResult();
     Mockito.clearInvocations(myBuildProblemResponsibilityFacade);
     myHeuristicResult.addResponsibility(myBuildProblem1, new Responsibility(myUser1, "any description"));
     myHeuristicResult.addResponsibility(myBuildProblem2, new Responsibility(myUser2, "any description 2"));
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Arrays.asList(myBuildProblem1, myBuildProblem2));
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Arrays.asList(myBuildProblem1, myBuildProblem2));
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.times(2)).setBuildProblemResponsibility(anyList(), any(), any());
   }
 
@@ -133,7 +135,7 @@ public class BuildProblemsAssignerTest extends BaseTestCase {
     when(mySBuild.getCommitters(any())).thenReturn(userSetMock);
 
     myHeuristicResult.addResponsibility(myBuildProblem1, new Responsibility(myUser1, "any description"));
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.singletonList(myBuildProblem1));
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.singletonList(myBuildProblem1));
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.never()).setBuildProblemResponsibility(anyList(), any(), any());
   }
 
@@ -144,7 +146,7 @@ public class BuildProblemsAssignerTest extends BaseTestCase {
     when(mySBuild.getCommitters(any())).thenReturn(userSetMock);
 
     myHeuristicResult.addResponsibility(myBuildProblem1, new DefaultUserResponsibility(myUser1));
-    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.singletonList(myBuildProblem1));
+    myBuildProblemsAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.singletonList(myBuildProblem1));
     Mockito.verify(myBuildProblemResponsibilityFacade, Mockito.only()).setBuildProblemResponsibility(anyList(), any(), any());
   }
 }
@@ -17,6 +17,7 @@
 package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import jetbrains.buildServer.BaseTestCase;
@@ -38,6 +39,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -72,6 +74,7 @@ public class BuildProblemsFilterTest extends BaseTestCase {
 
     when(mySBuild.getBuildPromotion()).thenReturn(buildPromotion);
     when(mySBuild.getParametersProvider()).thenReturn(Mockito.mock(ParametersProvider.class));
+    myFailedBuildInfo = new FailedBuildInfo(mySBuild);
     when(mySProject.getProjectId()).thenReturn("Project ID");
     when(project2.getProjectId()).thenReturn("Project ID 2");
     when(parentProject.getProjectId()).thenReturn("Parent Project ID");
@@ -81,15 +84,13 @@ public class BuildProblemsFilterTest extends BaseTestCase {
     when(myBuildProblem.getBuildProblemData()).thenReturn(myBuildProblemData);
     when(myBuildProblemData.getType()).thenReturn(Constants.TC_COMPILATION_ERROR_TYPE);
     when(myBuildProblem.isMuted()).thenReturn(false);
-    when(myBuildProblemUtils.isNew(myBuildProblem)).thenReturn(true);
+    when(myBuildProblemUtils.isNew(myFailedBuildInfo, myBuildProblem)).thenReturn(true);
     when(myBuildProblem.getAllResponsibilities())
       .thenReturn(Arrays.asList(myResponsibilityEntry, responsibilityEntry2));
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, myBuildProblem)).thenReturn(false);
-    when(myInvestigationsManager.checkUnderInvestigation(project2, mySBuild, myBuildProblem)).thenReturn(false);
+    when(myInvestigationsManager.checkProblemsUnderInvestigation(any(), any(), any())).thenReturn(new BitSet());
     myBuildProblemsFilter = new BuildProblemsFilter(myInvestigationsManager, myBuildProblemUtils);
 
     myBuildProblemWrapper = Collections.singletonList(myBuildProblem);
-    myFailedBuildInfo = new FailedBuildInfo(mySBuild);
   }
 
   public void Test_BuildProblemIsMuted() {
@@ -111,7 +112,7 @@ public class BuildProblemsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemNotNew() {
-    when(myBuildProblemUtils.isNew(myBuildProblem)).thenReturn(false);
+    when(myBuildProblemUtils.isNew(myFailedBuildInfo, myBuildProblem)).thenReturn(false);
 
     List<BuildProblem> applicableBuildProblems =
       myBuildProblemsFilter.apply(myFailedBuildInfo, mySProject, myBuildProblemWrapper);
@@ -120,7 +121,7 @@ public class BuildProblemsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemIsNew() {
-    when(myBuildProblemUtils.isNew(myBuildProblem)).thenReturn(true);
+    when(myBuildProblemUtils.isNew(myFailedBuildInfo, myBuildProblem)).thenReturn(true);
 
     List<BuildProblem> applicableBuildProblems =
       myBuildProblemsFilter.apply(myFailedBuildInfo, mySProject, myBuildProblemWrapper);
@@ -129,7 +130,10 @@ public class BuildProblemsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemIsUnderInvestigation() {
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, myBuildProblem)).thenReturn(true);
+    BitSet underInvestigation = new BitSet();
+    underInvestigation.set(0);
+    when(myInvestigationsManager.checkProblemsUnderInvestigation(mySProject, mySBuild, myBuildProblemWrapper))
+      .thenReturn(underInvestigation);
     when(myResponsibilityEntry.getProject()).thenReturn(mySProject);
 
     List<BuildProblem> applicableBuildProblems =
@@ -139,7 +143,8 @@ public class BuildProblemsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemNotUnderInvestigation() {
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, myBuildProblem)).thenReturn(false);
+    when(myInvestigationsManager.checkProblemsUnderInvestigation(mySProject, mySBuild, myBuildProblemWrapper))
+      .thenReturn(new BitSet());
     when(myResponsibilityEntry.getProject()).thenReturn(mySProject);
 
     List<BuildProblem> applicableBuildProblems =
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.Collections;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetric;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
+import jetbrains.buildServer.parameters.ParametersProvider;
+import jetbrains.buildServer.serverSide.BuildPromotionEx;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.vcs.*;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+@Test
+public class ChangeSetCacheTest extends BaseTestCase {
+  private static final long ROOT_ID = 7;
+  private BuildPromotionEx myPreviousBuildPromotion;
+
+  @BeforeMethod
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myPreviousBuildPromotion = mockPreviousBuildPromotion("rev1");
+  }
+
+  public void TestBuildsOfSameRevisionRangeShareChanges() {
+    ChangeSetCache cache = new ChangeSetCache(10);
+    SBuild build1 = mockBuild("rev2", "");
+    SBuild build2 = mockBuild("rev2", "");
+    long hits = PerformanceMetrics.get(PerformanceMetric.changeSetCacheHits);
+
+    cache.getBuildChangeContext(new FailedBuildInfo(build1)).getChanges();
+    cache.getBuildChangeContext(new FailedBuildInfo(build2)).getChanges();
+
+    Assert.assertEquals(PerformanceMetrics.get(PerformanceMetric.changeSetCacheHits), hits + 1);
+    Mockito.verify(build1.getBuildPromotion(), Mockito.times(1))
+           .getDetectedChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, false);
+    Mockito.verify(build2.getBuildPromotion(), Mockito.never())
+           .getDetectedChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, false);
+  }
+
+  public void TestDifferentRevisionsOrCheckoutRulesAreNotShared() {
+    SBuild build = mockBuild("rev2", "");
+
+    Assert.assertNotNull(ChangeSetCache.calculateKey(build));
+    Assert.assertNotEquals(ChangeSetCache.calculateKey(build), ChangeSetCache.calculateKey(mockBuild("rev3", "")));
+    Assert.assertNotEquals(ChangeSetCache.calculateKey(build), ChangeSetCache.calculateKey(mockBuild("rev2", "+:src")));
+  }
+
+  public void TestPersonalBuildsAndBuildsWithoutPreviousAreNotCached() {
+    SBuild personalBuild = mockBuild("rev2", "");
+    when(personalBuild.isPersonal()).thenReturn(true);
+    SBuild firstBuild = mockBuild("rev2", "");
+    when(firstBuild.getBuildPromotion().getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD))
+      .thenReturn(null);
+
+    Assert.assertNull(ChangeSetCache.calculateKey(personalBuild));
+    Assert.assertNull(ChangeSetCache.calculateKey(firstBuild));
+  }
+
+  public void TestPreviousBuildIsSelectedByChangesPolicy() {
+    SBuild build = mockBuild("rev2", "");
+    SBuild buildAfterAnotherBuild = mockBuild("rev2", "");
+    BuildPromotionEx anotherBuildPromotion = mockPreviousBuildPromotion("rev0");
+    when(buildAfterAnotherBuild.getBuildPromotion().getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD))
+      .thenReturn(anotherBuildPromotion);
+
+    Assert.assertNotEquals(ChangeSetCache.calculateKey(build), ChangeSetCache.calculateKey(buildAfterAnotherBuild));
+    Mockito.verify(build, Mockito.never()).getPreviousFinished();
+  }
+
+  public void TestKeyIsCalculatedOncePerBuild() {
+    ChangeSetCache cache = new ChangeSetCache(10);
+    SBuild build = mockBuild("rev2", "");
+    FailedBuildInfo failedBuildInfo = new FailedBuildInfo(build);
+    long hits = PerformanceMetrics.get(PerformanceMetric.changeSetCacheHits);
+
+    cache.getBuildChangeContext(failedBuildInfo);
+    cache.getBuildChangeContext(failedBuildInfo);
+
+    Assert.assertEquals(PerformanceMetrics.get(PerformanceMetric.changeSetCacheHits), hits + 1);
+    Mockito.verify(build, Mockito.times(1)).getRevisions();
+    Mockito.verify(build.getBuildPromotion(), Mockito.times(1))
+           .getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
+  }
+
+  public void TestEvictionIsCounted() {
+    ChangeSetCache cache = new ChangeSetCache(1);
+    long evictions = PerformanceMetrics.get(PerformanceMetric.changeSetCacheEvictions);
+
+    cache.getBuildChangeContext(new FailedBuildInfo(mockBuild("rev2", "")));
+    cache.getBuildChangeContext(new FailedBuildInfo(mockBuild("rev3", "")));
+
+    Assert.assertEquals(PerformanceMetrics.get(PerformanceMetric.changeSetCacheEvictions), evictions + 1);
+  }
+
+  private SBuild mockBuild(final String revision, final String checkoutRules) {
+    SBuild sBuild = Mockito.mock(SBuild.class);
+    BuildRevision buildRevision = mockRevision(revision, checkoutRules);
+    when(sBuild.getRevisions()).thenReturn(Collections.singletonList(buildRevision));
+    BuildPromotionEx buildPromotion = Mockito.mock(BuildPromotionEx.class);
+    when(buildPromotion.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD))
+      .thenReturn(myPreviousBuildPromotion);
+    when(sBuild.getBuildPromotion()).thenReturn(buildPromotion);
+    when(sBuild.getParametersProvider()).thenReturn(Mockito.mock(ParametersProvider.class));
+    return sBuild;
+  }
+
+  private static BuildPromotionEx mockPreviousBuildPromotion(final String revision) {
+    BuildPromotionEx buildPromotion = Mockito.mock(BuildPromotionEx.class);
+    BuildRevision buildRevision = mockRevision(revision, "");
+    when(buildPromotion.getRevisions()).thenReturn(Collections.singletonList(buildRevision));
+    return buildPromotion;
+  }
+
+  private static BuildRevision mockRevision(final String revision, final String checkoutRules) {
+    VcsRootInstance root = Mockito.mock(VcsRootInstance.class);
+    when(root.getId()).thenReturn(ROOT_ID);
+    VcsRootInstanceEntry entry = Mockito.mock(VcsRootInstanceEntry.class);
+    when(entry.getCheckoutRules()).thenReturn(new CheckoutRules(checkoutRules));
+    BuildRevision buildRevision = Mockito.mock(BuildRevision.class);
+    when(buildRevision.getRoot()).thenReturn(root);
+    when(buildRevision.getEntry()).thenReturn(entry);
+    when(buildRevision.getRevision()).thenReturn(revision);
+    return buildRevision;
+  }
+}
@@ -63,7 +63,8 @@ public class FailedTestAndBuildProblemsProcessorTest extends BaseTestCase {
                                                           myFailedTestAssigner,
                                                           buildProblemsFilter,
                                                           buildProblemsAssigner,
-                                                          myAssignerArtifactDao);
+                                                          myAssignerArtifactDao,
+                                                          new ChangeSetCache());
 
     //configure tests
     TestName testNameMock = Mockito.mock(TestName.class);
@@ -175,6 +176,23 @@ public class FailedTestAndBuildProblemsProcessorTest extends BaseTestCase {
     Mockito.verify(myFailedTestAssigner, Mockito.atLeastOnce()).assign(any(), any(), any(), anyList());
   }
 
+  public void TestBuildWithoutNewFailuresSkipped() {
+    ShortStatistics shortStatistics = Mockito.mock(ShortStatistics.class);
+    when(shortStatistics.getFailedTestCount()).thenReturn(1);
+    when(shortStatistics.getAllTestCount()).thenReturn(10);
+    when(mySBuild.getShortStatistics()).thenReturn(shortStatistics);
+
+    myProcessor.processBuild(myFailedBuildInfo);
+    myProcessor.processBuild(myFailedBuildInfo);
+
+    Mockito.verify(myResponsibleUserFinder, Mockito.times(1)).findResponsibleUser(any(), any(), anyList(), anyList());
+
+    when(shortStatistics.getFailedTestCount()).thenReturn(2);
+    myProcessor.processBuild(myFailedBuildInfo);
+
+    Mockito.verify(myResponsibleUserFinder, Mockito.times(2)).findResponsibleUser(any(), any(), anyList(), anyList());
+  }
+
   private void configureBuildFeature(SBuild sBuild) {
     SBuildFeatureDescriptor sBuildFeatureDescriptor = Mockito.mock(SBuildFeatureDescriptor.class);
     when(sBuild.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
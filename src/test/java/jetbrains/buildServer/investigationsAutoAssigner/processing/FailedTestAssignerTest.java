@@ -51,6 +51,7 @@ public class FailedTestAssignerTest extends BaseTestCase {
   private User myUser2;
   private FailedTestAssigner myTestedFailedTestAssigner;
   private SBuild mySBuild;
+  private BuildChangeContext myBuildChangeContext;
 
   @BeforeMethod
   @Override
@@ -73,6 +74,7 @@ public class FailedTestAssignerTest extends BaseTestCase {
 
     mySProject = Mockito.mock(SProject.class);
     mySBuild = Mockito.mock(SBuild.class);
+    myBuildChangeContext = new BuildChangeContext(mySBuild);
     myUser1 = Mockito.mock(UserImpl.class);
     when(myUser1.getUsername()).thenReturn("user1");
     when(myUser1.getId()).thenReturn(1L);
@@ -92,13 +94,13 @@ public class FailedTestAssignerTest extends BaseTestCase {
   }
 
   public void Test_NoTestRuns() {
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.emptyList());
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.emptyList());
 
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.never()).setTestNameResponsibility(anyList(), any(), any());
   }
 
   public void Test_NoResponsibilitiesFound() {
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.singletonList(mySTestRun1));
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.singletonList(mySTestRun1));
 
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.never()).setTestNameResponsibility(anyList(), any(), any());
   }
@@ -107,7 +109,7 @@ public class FailedTestAssignerTest extends BaseTestCase {
     Responsibility putResponsibility = new Responsibility(myUser1, "any description");
     myHeuristicResult.addResponsibility(mySTestRun1, putResponsibility);
 
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.singletonList(mySTestRun1));
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.singletonList(mySTestRun1));
 
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.only()).setTestNameResponsibility(anyList(), any(), any());
   }
@@ -118,7 +120,7 @@ public class FailedTestAssignerTest extends BaseTestCase {
     myHeuristicResult.addResponsibility(mySTestRun1, putResponsibility);
     myHeuristicResult.addResponsibility(mySTestRun2, putResponsibility2);
 
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Arrays.asList(mySTestRun1, mySTestRun2));
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Arrays.asList(mySTestRun1, mySTestRun2));
 
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.only()).setTestNameResponsibility(anyList(), any(), any());
   }
@@ -126,21 +128,21 @@ public class FailedTestAssignerTest extends BaseTestCase {
   public void Test_TwoDifferentResponsibilitiesFound() {
     myHeuristicResult.addResponsibility(mySTestRun1, new Responsibility(myUser1, "any description"));
     myHeuristicResult.addResponsibility(mySTestRun2, new Responsibility(myUser2, "any description"));
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Arrays.asList(mySTestRun1, mySTestRun2));
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Arrays.asList(mySTestRun1, mySTestRun2));
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.times(2)).setTestNameResponsibility(anyList(), any(), any());
 
     myHeuristicResult = new HeuristicResult();
     Mockito.clearInvocations(myTestNameResponsibilityFacade);
     myHeuristicResult.addResponsibility(mySTestRun1, new Responsibility(myUser1, "any description"));
     myHeuristicResult.addResponsibility(mySTestRun2, new Responsibility(myUser1, "any description 2"));
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Arrays.asList(mySTestRun1, mySTestRun2));
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Arrays.asList(mySTestRun1, mySTestRun2));
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.times(2)).setTestNameResponsibility(anyList(), any(), any());
 
     myHeuristicResult = new HeuristicResult();
     Mockito.clearInvocations(myTestNameResponsibilityFacade);
     myHeuristicResult.addResponsibility(mySTestRun1, new Responsibility(myUser1, "any description"));
     myHeuristicResult.addResponsibility(mySTestRun2, new Responsibility(myUser2, "any description 2"));
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Arrays.asList(mySTestRun1, mySTestRun2));
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Arrays.asList(mySTestRun1, mySTestRun2));
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.times(2)).setTestNameResponsibility(anyList(), any(), any());
   }
 
@@ -151,7 +153,7 @@ public class FailedTestAssignerTest extends BaseTestCase {
     Responsibility putResponsibility = new Responsibility(myUser1, "any description");
     myHeuristicResult.addResponsibility(mySTestRun1, putResponsibility);
 
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.singletonList(mySTestRun1));
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.singletonList(mySTestRun1));
 
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.never()).setTestNameResponsibility(anyList(), any(), any());
   }
@@ -163,7 +165,7 @@ public class FailedTestAssignerTest extends BaseTestCase {
     Responsibility putResponsibility = new DefaultUserResponsibility(myUser1);
     myHeuristicResult.addResponsibility(mySTestRun1, putResponsibility);
 
-    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, mySBuild, Collections.singletonList(mySTestRun1));
+    myTestedFailedTestAssigner.assign(myHeuristicResult, mySProject, myBuildChangeContext, Collections.singletonList(mySTestRun1));
 
     Mockito.verify(myTestNameResponsibilityFacade, Mockito.only()).setTestNameResponsibility(anyList(), any(), any());
   }
@@ -16,10 +16,13 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.FlakyTestDetector;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
@@ -30,12 +33,15 @@ import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STest;
 import jetbrains.buildServer.serverSide.STestRun;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -76,10 +82,10 @@ public class FailedTestsFilterTest extends BaseTestCase {
     when(mySTestRun.getTest()).thenReturn(mySTest);
     when(mySTest.getAllResponsibilities())
       .thenReturn(Arrays.asList(myTestNameResponsibilityEntry, responsibilityEntry2));
-    when(myFlakyTestDetector.isFlaky(anyLong())).thenReturn(false);
+    when(myFlakyTestDetector.findFlaky(any())).thenReturn(new BitSet());
     when(myTestNameResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.NONE);
     when(responsibilityEntry2.getState()).thenReturn(ResponsibilityEntry.State.NONE);
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, mySTest)).thenReturn(false);
+    when(myInvestigationsManager.checkTestsUnderInvestigation(any(), any(), any())).thenReturn(new BitSet());
 
     myTestsWrapper = Collections.singletonList(mySTestRun);
     when(mySBuild.getParametersProvider()).thenReturn(Mockito.mock(ParametersProvider.class));
@@ -137,7 +143,10 @@ public class FailedTestsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemIsUnderInvestigation() {
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, mySTest)).thenReturn(true);
+    BitSet underInvestigation = new BitSet();
+    underInvestigation.set(0);
+    when(myInvestigationsManager.checkTestsUnderInvestigation(mySProject, mySBuild, Collections.singletonList(mySTest)))
+      .thenReturn(underInvestigation);
     when(myTestNameResponsibilityEntry.getProject()).thenReturn(mySProject);
 
     List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
@@ -146,7 +155,8 @@ public class FailedTestsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemNotUnderInvestigation() {
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, mySTest)).thenReturn(false);
+    when(myInvestigationsManager.checkTestsUnderInvestigation(mySProject, mySBuild, Collections.singletonList(mySTest)))
+      .thenReturn(new BitSet());
     when(myTestNameResponsibilityEntry.getProject()).thenReturn(mySProject);
 
     List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
@@ -155,7 +165,9 @@ public class FailedTestsFilterTest extends BaseTestCase {
   }
 
   public void Test_TestIsFlaky() {
-    when(myFlakyTestDetector.isFlaky(anyLong())).thenReturn(true);
+    BitSet flaky = new BitSet();
+    flaky.set(0);
+    when(myFlakyTestDetector.findFlaky(any())).thenReturn(flaky);
 
     List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
 
@@ -163,10 +175,60 @@ public class FailedTestsFilterTest extends BaseTestCase {
   }
 
   public void Test_TestNotFlaky() {
-    when(myFlakyTestDetector.isFlaky(anyLong())).thenReturn(false);
+    when(myFlakyTestDetector.findFlaky(any())).thenReturn(new BitSet());
 
     List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
 
     Assert.assertEquals(applicableTestRuns.size(), 1);
   }
+
+  public void Test_OnlyNotProcessedTestRunsAreFiltered() {
+    when(mySTestRun.getOrderId()).thenReturn(5);
+    when(mySTestRun.getTestRunId()).thenReturn(5);
+    // started before the processed run, but failed after it
+    STestRun laterFailedTestRun = Mockito.mock(STestRun.class);
+    when(laterFailedTestRun.getOrderId()).thenReturn(3);
+    when(laterFailedTestRun.getTestRunId()).thenReturn(3);
+    when(laterFailedTestRun.isNewFailure()).thenReturn(true);
+    when(laterFailedTestRun.getTest()).thenReturn(mySTest);
+
+    List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
+    Assert.assertEquals(applicableTestRuns, Collections.singletonList(mySTestRun));
+
+    applicableTestRuns =
+      myFailedTestFilter.apply(myFailedBuildInfo, mySProject, Arrays.asList(mySTestRun, laterFailedTestRun));
+    Assert.assertEquals(applicableTestRuns, Collections.singletonList(laterFailedTestRun));
+
+    applicableTestRuns =
+      myFailedTestFilter.apply(myFailedBuildInfo, mySProject, Arrays.asList(mySTestRun, laterFailedTestRun));
+    Assert.assertEquals(applicableTestRuns.size(), 0);
+  }
+
+  public void Test_InvestigationsAreCheckedOnlyUpToLimit() {
+    ParametersProvider parametersProvider = Mockito.mock(ParametersProvider.class);
+    when(parametersProvider.get(Constants.MAX_TESTS_PER_BUILD_NUMBER)).thenReturn("2");
+    when(mySBuild.getParametersProvider()).thenReturn(parametersProvider);
+    FailedBuildInfo failedBuildInfo = new FailedBuildInfo(mySBuild);
+    List<STestRun> testRuns = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      STestRun testRun = Mockito.mock(STestRun.class);
+      when(testRun.getTestRunId()).thenReturn(i);
+      when(testRun.getOrderId()).thenReturn(i);
+      when(testRun.isNewFailure()).thenReturn(true);
+      when(testRun.getTest()).thenReturn(mySTest);
+      testRuns.add(testRun);
+    }
+    BitSet firstUnderInvestigation = new BitSet();
+    firstUnderInvestigation.set(0);
+    when(myInvestigationsManager.checkTestsUnderInvestigation(any(), any(), any()))
+      .thenReturn(firstUnderInvestigation, new BitSet());
+
+    List<STestRun> applicableTestRuns = myFailedTestFilter.apply(failedBuildInfo, mySProject, testRuns);
+
+    Assert.assertEquals(applicableTestRuns, Arrays.asList(testRuns.get(1), testRuns.get(2)));
+    ArgumentCaptor<List<STest>> checkedTests = ArgumentCaptor.forClass(List.class);
+    verify(myInvestigationsManager, times(2)).checkTestsUnderInvestigation(any(), any(), checkedTests.capture());
+    Assert.assertEquals(checkedTests.getAllValues().get(0).size(), 2);
+    Assert.assertEquals(checkedTests.getAllValues().get(1).size(), 2);
+  }
 }
@@ -20,13 +20,17 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.heuristics.Heuristic;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetric;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PerformanceMetrics;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.users.SUser;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -42,6 +46,7 @@ public class ResponsibleUserFinderTest extends BaseTestCase {
   private Heuristic myHeuristic;
   private Heuristic myHeuristic2;
   private SBuild mySBuild;
+  private BuildChangeContext myBuildChangeContext;
   private STestRun mySTestRun;
   private SProject mySProject;
   private List<STestRun> myTestWrapper;
@@ -53,9 +58,14 @@ public class ResponsibleUserFinderTest extends BaseTestCase {
     myHeuristic = Mockito.mock(Heuristic.class);
     myHeuristic2 = Mockito.mock(Heuristic.class);
     mySBuild = Mockito.mock(SBuild.class);
+    myBuildChangeContext = new BuildChangeContext(mySBuild);
     mySProject = Mockito.mock(SProject.class);
     mySTestRun = Mockito.mock(STestRun.class);
     myTestWrapper = Collections.singletonList(mySTestRun);
+    when(myHeuristic.isApplicable(any())).thenReturn(true);
+    when(myHeuristic2.isApplicable(any())).thenReturn(true);
+    when(myHeuristic.getCost()).thenReturn(Heuristic.Cost.MODERATE);
+    when(myHeuristic2.getCost()).thenReturn(Heuristic.Cost.MODERATE);
     myUserFinder = new ResponsibleUserFinder(Arrays.asList(myHeuristic, myHeuristic2));
     HeuristicResult heuristicResult1 = new HeuristicResult();
     HeuristicResult heuristicResult2 = new HeuristicResult();
@@ -65,7 +75,7 @@ public class ResponsibleUserFinderTest extends BaseTestCase {
 
   public void Test_FindResponsibleUser_ResponsibleNotFound() {
     HeuristicResult result =
-      myUserFinder.findResponsibleUser(mySBuild, mySProject, Collections.emptyList(), myTestWrapper);
+      myUserFinder.findResponsibleUser(myBuildChangeContext, mySProject, Collections.emptyList(), myTestWrapper);
 
     Assert.assertTrue(result.isEmpty());
   }
@@ -74,7 +84,7 @@ public class ResponsibleUserFinderTest extends BaseTestCase {
     HeuristicResult emptyHeuristicResult = new HeuristicResult();
     when(myHeuristic.findResponsibleUser(any())).thenReturn(emptyHeuristicResult);
 
-    myUserFinder.findResponsibleUser(mySBuild, mySProject, Collections.emptyList(), myTestWrapper);
+    myUserFinder.findResponsibleUser(myBuildChangeContext, mySProject, Collections.emptyList(), myTestWrapper);
 
     Mockito.verify(myHeuristic2, Mockito.atLeastOnce()).findResponsibleUser(any());
   }
@@ -85,7 +95,7 @@ public class ResponsibleUserFinderTest extends BaseTestCase {
     heuristicResult.addResponsibility(mySTestRun, new Responsibility(sUser, "Failed description"));
     when(myHeuristic.findResponsibleUser(any())).thenReturn(heuristicResult);
 
-    myUserFinder.findResponsibleUser(mySBuild, mySProject, Collections.emptyList(), myTestWrapper);
+    myUserFinder.findResponsibleUser(myBuildChangeContext, mySProject, Collections.emptyList(), myTestWrapper);
 
     Mockito.verify(myHeuristic2, Mockito.never()).findResponsibleUser(any());
   }
@@ -100,11 +110,68 @@ public class ResponsibleUserFinderTest extends BaseTestCase {
     when(myHeuristic2.findResponsibleUser(any())).thenReturn(heuristicResult2);
 
     HeuristicResult result =
-      myUserFinder.findResponsibleUser(mySBuild, mySProject, Collections.emptyList(), myTestWrapper);
+      myUserFinder.findResponsibleUser(myBuildChangeContext, mySProject, Collections.emptyList(), myTestWrapper);
     Assert.assertFalse(result.isEmpty());
     Assert.assertNotNull(result.getResponsibility(mySTestRun));
     Responsibility responsibility = result.getResponsibility(mySTestRun);
     assert responsibility != null;
     Assert.assertEquals(responsibility.getDescription(), "Failed description");
   }
+
+  public void Test_FindResponsibleUser_ConcurrentlyTakeFirstFound() {
+    setInternalProperty(Constants.PARALLEL_HEURISTICS_ENABLED, "true");
+    ResponsibleUserFinder userFinder = new ResponsibleUserFinder(Arrays.asList(myHeuristic, myHeuristic2));
+    SUser sUser = Mockito.mock(SUser.class);
+    STestRun sTestRun2 = Mockito.mock(STestRun.class);
+    when(sTestRun2.getTestRunId()).thenReturn(2);
+    HeuristicResult heuristicResult = new HeuristicResult();
+    HeuristicResult heuristicResult2 = new HeuristicResult();
+    heuristicResult.addResponsibility(mySTestRun, new Responsibility(sUser, "Failed description"));
+    heuristicResult2.addResponsibility(mySTestRun, new Responsibility(sUser, "Failed description 2"));
+    heuristicResult2.addResponsibility(sTestRun2, new Responsibility(sUser, "Failed description 3"));
+    when(myHeuristic.findResponsibleUser(any())).thenReturn(heuristicResult);
+    when(myHeuristic2.findResponsibleUser(any())).thenReturn(heuristicResult2);
+
+    try {
+      HeuristicResult result = userFinder.findResponsibleUser(myBuildChangeContext,
+                                                              mySProject,
+                                                              Collections.emptyList(),
+                                                              Arrays.asList(mySTestRun, sTestRun2));
+      Responsibility responsibility = result.getResponsibility(mySTestRun);
+      assert responsibility != null;
+      Assert.assertEquals(responsibility.getDescription(), "Failed description");
+      Responsibility responsibility2 = result.getResponsibility(sTestRun2);
+      assert responsibility2 != null;
+      Assert.assertEquals(responsibility2.getDescription(), "Failed description 3");
+    } finally {
+      userFinder.dispose();
+    }
+  }
+
+  public void Test_FindResponsibleUser_SkipNotApplicable() {
+    when(myHeuristic.isApplicable(any())).thenReturn(false);
+    long skipped = PerformanceMetrics.get(PerformanceMetric.heuristicsSkipped);
+
+    myUserFinder.findResponsibleUser(myBuildChangeContext, mySProject, Collections.emptyList(), myTestWrapper);
+
+    Mockito.verify(myHeuristic, Mockito.never()).findResponsibleUser(any());
+    Mockito.verify(myHeuristic2, Mockito.times(1)).findResponsibleUser(any());
+    Assert.assertEquals(PerformanceMetrics.get(PerformanceMetric.heuristicsSkipped), skipped + 1);
+  }
+
+  public void Test_FindResponsibleUser_CheckApplicabilityByCost() {
+    when(myHeuristic.getCost()).thenReturn(Heuristic.Cost.EXPENSIVE);
+    when(myHeuristic2.getCost()).thenReturn(Heuristic.Cost.CHEAP);
+    ResponsibleUserFinder userFinder = new ResponsibleUserFinder(Arrays.asList(myHeuristic, myHeuristic2));
+    long run = PerformanceMetrics.get(PerformanceMetric.heuristicsRun);
+
+    userFinder.findResponsibleUser(myBuildChangeContext, mySProject, Collections.emptyList(), myTestWrapper);
+
+    InOrder inOrder = Mockito.inOrder(myHeuristic, myHeuristic2);
+    inOrder.verify(myHeuristic2).isApplicable(any());
+    inOrder.verify(myHeuristic).isApplicable(any());
+    inOrder.verify(myHeuristic).findResponsibleUser(any());
+    inOrder.verify(myHeuristic2).findResponsibleUser(any());
+    Assert.assertEquals(PerformanceMetrics.get(PerformanceMetric.heuristicsRun), run + 2);
+  }
 }
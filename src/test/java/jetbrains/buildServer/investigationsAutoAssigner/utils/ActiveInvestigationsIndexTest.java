@@ -0,0 +1,140 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.responsibility.ResponsibilityEntry;
+import jetbrains.buildServer.responsibility.ResponsibilityFacadeEx;
+import jetbrains.buildServer.responsibility.TestNameResponsibilityEntry;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.serverSide.SProject;
+import jetbrains.buildServer.serverSide.executors.ExecutorServices;
+import jetbrains.buildServer.serverSide.impl.executors.CommonExecutorService;
+import jetbrains.buildServer.serverSide.problems.BuildProblemInfo;
+import jetbrains.buildServer.tests.TestName;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+@Test
+public class ActiveInvestigationsIndexTest extends BaseTestCase {
+  private ActiveInvestigationsIndex myIndex;
+  private ResponsibilityFacadeEx myResponsibilityFacade;
+  private SProject myProject;
+  private SBuild mySBuild;
+  private TestName myTestName;
+  private Set<String> myProjectIds;
+
+  @BeforeMethod
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myResponsibilityFacade = Mockito.mock(ResponsibilityFacadeEx.class);
+    ExecutorServices executorServices = Mockito.mock(ExecutorServices.class);
+    when(executorServices.getNormalExecutorService()).thenReturn(Mockito.mock(CommonExecutorService.class));
+    myIndex = new ActiveInvestigationsIndex(myResponsibilityFacade, executorServices);
+
+    myProject = Mockito.mock(SProject.class);
+    when(myProject.getProjectId()).thenReturn("Project ID");
+    myProjectIds = new HashSet<>(Collections.singletonList("Project ID"));
+    mySBuild = Mockito.mock(SBuild.class);
+    when(mySBuild.getQueuedDate()).thenReturn(new Date());
+    myTestName = new TestName("com.foo.BarTest.testSomething");
+  }
+
+  public void TestIndexIsNotReadyBeforeRebuild() {
+    Assert.assertFalse(myIndex.isReadyFor(mySBuild));
+  }
+
+  public void TestRebuildCollectsActiveInvestigations() {
+    TestNameResponsibilityEntry entry = Mockito.mock(TestNameResponsibilityEntry.class);
+    when(entry.getState()).thenReturn(ResponsibilityEntry.State.TAKEN);
+    when(entry.getTimestamp()).thenReturn(new Date());
+    when(entry.getProject()).thenReturn(myProject);
+    when(entry.getTestName()).thenReturn(myTestName);
+    when(myResponsibilityFacade.getUserTestNameResponsibilities(null, null))
+      .thenReturn(Collections.singletonList(entry));
+
+    myIndex.rebuild();
+
+    Assert.assertTrue(myIndex.isReadyFor(mySBuild));
+    Assert.assertTrue(myIndex.isTestUnderInvestigation(myProjectIds, mySBuild, myTestName));
+    Assert.assertFalse(myIndex.isTestUnderInvestigation(myProjectIds, mySBuild, new TestName("com.foo.Other.test")));
+  }
+
+  public void TestEventsUpdateIndex() {
+    myIndex.rebuild();
+    BuildProblemInfo buildProblem = Mockito.mock(BuildProblemInfo.class);
+    when(buildProblem.getId()).thenReturn(5);
+
+    myIndex.buildProblemsResponsibleChanged(myProject,
+                                            Collections.singletonList(buildProblem),
+                                            createEntry(ResponsibilityEntry.State.TAKEN, 1000));
+    Assert.assertTrue(myIndex.isBuildProblemUnderInvestigation(myProjectIds, mySBuild, 5));
+
+    myIndex.buildProblemsResponsibleChanged(myProject,
+                                            Collections.singletonList(buildProblem),
+                                            createEntry(ResponsibilityEntry.State.GIVEN_UP, 2000));
+    Assert.assertFalse(myIndex.isBuildProblemUnderInvestigation(myProjectIds, mySBuild, 5));
+
+    myIndex.buildProblemsResponsibleChanged(myProject,
+                                            Collections.singletonList(buildProblem),
+                                            createEntry(ResponsibilityEntry.State.TAKEN, 1500));
+    Assert.assertFalse(myIndex.isBuildProblemUnderInvestigation(myProjectIds, mySBuild, 5));
+  }
+
+  public void TestRemovedInvestigationIsDropped() {
+    myIndex.rebuild();
+    BuildProblemInfo buildProblem = Mockito.mock(BuildProblemInfo.class);
+    when(buildProblem.getId()).thenReturn(5);
+    myIndex.buildProblemsResponsibleChanged(myProject,
+                                            Collections.singletonList(buildProblem),
+                                            createEntry(ResponsibilityEntry.State.TAKEN, 1000));
+    myIndex.testsResponsibleChanged(myProject,
+                                    Collections.singletonList(myTestName),
+                                    createEntry(ResponsibilityEntry.State.TAKEN, 1000));
+    Assert.assertEquals(myIndex.size(), 2);
+
+    myIndex.buildProblemsResponsibleChanged(myProject, Collections.singletonList(buildProblem), null);
+    myIndex.testsResponsibleChanged(myProject,
+                                    Collections.singletonList(myTestName),
+                                    createEntry(ResponsibilityEntry.State.NONE, 500));
+    Assert.assertFalse(myIndex.isBuildProblemUnderInvestigation(myProjectIds, mySBuild, 5));
+    Assert.assertTrue(myIndex.isTestUnderInvestigation(myProjectIds, mySBuild, myTestName));
+    Assert.assertEquals(myIndex.size(), 1);
+
+    myIndex.testsResponsibleChanged(myProject,
+                                    Collections.singletonList(myTestName),
+                                    createEntry(ResponsibilityEntry.State.NONE, 2000));
+    Assert.assertFalse(myIndex.isTestUnderInvestigation(myProjectIds, mySBuild, myTestName));
+    Assert.assertEquals(myIndex.size(), 0);
+  }
+
+  private static ResponsibilityEntry createEntry(ResponsibilityEntry.State state, long timestamp) {
+    ResponsibilityEntry entry = Mockito.mock(ResponsibilityEntry.class);
+    when(entry.getState()).thenReturn(state);
+    when(entry.getTimestamp()).thenReturn(new Date(timestamp));
+    return entry;
+  }
+}
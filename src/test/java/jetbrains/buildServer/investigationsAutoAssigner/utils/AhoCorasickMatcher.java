@@ -0,0 +1,193 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Aho-Corasick automaton which finds all occurrences of a fixed set of patterns in a text in a single pass,
+ * i.e. in O(text length + number of matches) regardless of the number of patterns.
+ * The automaton is immutable after creation and may be shared between threads.
+ * Is kept as the baseline of the multi-pattern substring search for the benchmarks.
+ */
+public final class AhoCorasickMatcher {
+  private static final int ROOT = 0;
+  private static final int NO_NODE = -1;
+  private static final int ASCII_SIZE = 128;
+
+  private final char[] myNodeChars;
+  private final int[] myFirstChild;
+  private final int[] myNextSibling;
+  private final int[] myFailure;
+  private final int[] myDictionarySuffix;
+  private final int[] myPatternIds;
+  private int myNodesCount;
+  private final int[] myRootAsciiChildren = new int[ASCII_SIZE];
+  private final int myPatternsCount;
+
+  /**
+   * @param patterns non-empty patterns, their indexes in the list are reported as the pattern ids
+   *                 (a duplicated pattern is reported by the index of its first occurrence).
+   */
+  public AhoCorasickMatcher(@NotNull final List<String> patterns) {
+    int capacity = 1;
+    for (String pattern : patterns) {
+      capacity += pattern.length();
+    }
+    myNodeChars = new char[capacity];
+    myFirstChild = new int[capacity];
+    myNextSibling = new int[capacity];
+    myFailure = new int[capacity];
+    myDictionarySuffix = new int[capacity];
+    myPatternIds = new int[capacity];
+    Arrays.fill(myRootAsciiChildren, NO_NODE);
+    newNode('\0');
+    myPatternsCount = patterns.size();
+
+    for (int patternId = 0; patternId < patterns.size(); patternId++) {
+      addPattern(patterns.get(patternId), patternId);
+    }
+    buildLinks();
+  }
+
+  public int getPatternsCount() {
+    return myPatternsCount;
+  }
+
+  /**
+   * @return ids of the patterns which occur in the text at least once. Parts of a {@link CompositeText}
+   * are scanned one by one without joining them, matches spanning the part boundaries are found as well.
+   */
+  @NotNull
+  public BitSet findMatches(@NotNull final CharSequence text) {
+    BitSet matches = new BitSet(myPatternsCount);
+    if (text instanceof CompositeText) {
+      CompositeText compositeText = (CompositeText)text;
+      int state = ROOT;
+      for (int i = 0; i < compositeText.getPartsCount(); i++) {
+        state = scan(compositeText.getPart(i), compositeText.getPartLength(i), state, matches);
+      }
+    } else {
+      scan(text, text.length(), ROOT, matches);
+    }
+    return matches;
+  }
+
+  private int scan(@NotNull final CharSequence text, final int length, int state, @NotNull final BitSet matches) {
+    for (int i = 0; i < length; i++) {
+      state = nextState(state, text.charAt(i));
+      int node = myPatternIds[state] != NO_NODE ? state : myDictionarySuffix[state];
+      while (node != ROOT) {
+        matches.set(myPatternIds[node]);
+        node = myDictionarySuffix[node];
+      }
+    }
+    return state;
+  }
+
+  private int nextState(int state, final char c) {
+    while (true) {
+      int next = getChild(state, c);
+      if (next != NO_NODE) {
+        return next;
+      }
+      if (state == ROOT) {
+        return ROOT;
+      }
+      state = myFailure[state];
+    }
+  }
+
+  private void addPattern(@NotNull final String pattern, final int patternId) {
+    int node = ROOT;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      int child = getChild(node, c);
+      if (child == NO_NODE) {
+        child = newNode(c);
+        myNextSibling[child] = myFirstChild[node];
+        myFirstChild[node] = child;
+        if (node == ROOT && c < ASCII_SIZE) {
+          myRootAsciiChildren[c] = child;
+        }
+      }
+      node = child;
+    }
+
+    if (node != ROOT && myPatternIds[node] == NO_NODE) {
+      myPatternIds[node] = patternId;
+    }
+  }
+
+  /*
+    Breadth-first traversal: the failure link of a node points to the longest proper suffix of its string
+    which is present in the trie, the dictionary suffix link points to the longest such suffix ending a pattern.
+   */
+  private void buildLinks() {
+    int[] queue = new int[myNodesCount];
+    int head = 0;
+    int tail = 0;
+    for (int child = myFirstChild[ROOT]; child != NO_NODE; child = myNextSibling[child]) {
+      myFailure[child] = ROOT;
+      myDictionarySuffix[child] = ROOT;
+      queue[tail++] = child;
+    }
+
+    while (head < tail) {
+      int node = queue[head++];
+      for (int child = myFirstChild[node]; child != NO_NODE; child = myNextSibling[child]) {
+        char c = myNodeChars[child];
+        int failure = myFailure[node];
+        while (failure != ROOT && getChild(failure, c) == NO_NODE) {
+          failure = myFailure[failure];
+        }
+        int failureChild = getChild(failure, c);
+        myFailure[child] = failureChild != NO_NODE ? failureChild : ROOT;
+        int suffix = myFailure[child];
+        myDictionarySuffix[child] = myPatternIds[suffix] != NO_NODE ? suffix : myDictionarySuffix[suffix];
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  private int getChild(final int node, final char c) {
+    if (node == ROOT && c < ASCII_SIZE) {
+      return myRootAsciiChildren[c];
+    }
+
+    for (int child = myFirstChild[node]; child != NO_NODE; child = myNextSibling[child]) {
+      if (myNodeChars[child] == c) {
+        return child;
+      }
+    }
+    return NO_NODE;
+  }
+
+  private int newNode(final char c) {
+    int node = myNodesCount++;
+    myNodeChars[node] = c;
+    myFirstChild[node] = NO_NODE;
+    myNextSibling[node] = NO_NODE;
+    myFailure[node] = ROOT;
+    myDictionarySuffix[node] = ROOT;
+    myPatternIds[node] = NO_NODE;
+    return node;
+  }
+}
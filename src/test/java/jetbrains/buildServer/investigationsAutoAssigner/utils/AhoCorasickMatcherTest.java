@@ -0,0 +1,84 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import jetbrains.buildServer.BaseTestCase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class AhoCorasickMatcherTest extends BaseTestCase {
+
+  public void TestOverlappingPatterns() {
+    AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("he", "she", "his", "hers", "absent"));
+
+    BitSet matches = matcher.findMatches("ushers");
+
+    Assert.assertTrue(matches.get(0));
+    Assert.assertTrue(matches.get(1));
+    Assert.assertFalse(matches.get(2));
+    Assert.assertTrue(matches.get(3));
+    Assert.assertFalse(matches.get(4));
+  }
+
+  public void TestNoPatterns() {
+    AhoCorasickMatcher matcher = new AhoCorasickMatcher(new ArrayList<>());
+
+    Assert.assertEquals(matcher.getPatternsCount(), 0);
+    Assert.assertTrue(matcher.findMatches("any text").isEmpty());
+  }
+
+  public void TestNonAsciiAndSeparators() {
+    AhoCorasickMatcher matcher =
+      new AhoCorasickMatcher(Arrays.asList("путь/файл", "path\\to\\File", "path.to.File"));
+
+    Assert.assertEquals(matcher.findMatches("at путь/файл.java:10").cardinality(), 1);
+    Assert.assertTrue(matcher.findMatches("at path\\to\\File.cs").get(1));
+    Assert.assertTrue(matcher.findMatches("at path.to.File.method(File.java:42)").get(2));
+  }
+
+  public void TestSameResultAsContains() {
+    Random random = new Random(239);
+    for (int iteration = 0; iteration < 200; iteration++) {
+      List<String> patterns = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        patterns.add(randomString(random, 1 + random.nextInt(4)));
+      }
+      String text = randomString(random, 200);
+
+      BitSet matches = new AhoCorasickMatcher(patterns).findMatches(text);
+
+      for (int i = 0; i < patterns.size(); i++) {
+        boolean expected = text.contains(patterns.get(i)) && patterns.indexOf(patterns.get(i)) == i;
+        Assert.assertEquals(matches.get(i), expected, "pattern " + patterns.get(i) + " in " + text);
+      }
+    }
+  }
+
+  private static String randomString(Random random, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = "ab./c".charAt(random.nextInt(5));
+    }
+    return new String(chars);
+  }
+}
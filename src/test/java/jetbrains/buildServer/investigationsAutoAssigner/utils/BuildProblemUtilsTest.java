@@ -0,0 +1,83 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.parameters.ParametersProvider;
+import jetbrains.buildServer.serverSide.BuildPromotionEx;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Test
+public class BuildProblemUtilsTest extends BaseTestCase {
+  private BuildProblemUtils myBuildProblemUtils;
+  private FailedBuildInfo myFailedBuildInfo;
+  private BuildPromotionEx myBuildPromotion;
+  private BuildPromotionEx myPrevBuildPromotion;
+
+  @BeforeMethod
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myBuildProblemUtils = new BuildProblemUtils();
+    SBuild sBuild = Mockito.mock(SBuild.class);
+    when(sBuild.getParametersProvider()).thenReturn(Mockito.mock(ParametersProvider.class));
+    myFailedBuildInfo = new FailedBuildInfo(sBuild);
+    myBuildPromotion = Mockito.mock(BuildPromotionEx.class);
+    myPrevBuildPromotion = Mockito.mock(BuildPromotionEx.class);
+    when(myBuildPromotion.getId()).thenReturn(2L);
+    when(myBuildPromotion.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD))
+      .thenReturn(myPrevBuildPromotion);
+  }
+
+  public void TestProblemsOfPreviousBuildAreCollectedOnce() {
+    BuildProblem oldProblem = createBuildProblem(1, myBuildPromotion);
+    BuildProblem newProblem = createBuildProblem(3, myBuildPromotion);
+    when(myPrevBuildPromotion.getBuildProblems())
+      .thenReturn(Arrays.asList(createBuildProblem(1, myPrevBuildPromotion),
+                                createBuildProblem(2, myPrevBuildPromotion)));
+
+    Assert.assertFalse(myBuildProblemUtils.isNew(myFailedBuildInfo, oldProblem));
+    Assert.assertTrue(myBuildProblemUtils.isNew(myFailedBuildInfo, newProblem));
+    Assert.assertTrue(myBuildProblemUtils.isNew(newProblem));
+    verify(myBuildPromotion, times(2)).getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
+  }
+
+  public void TestNoPreviousBuild() {
+    when(myBuildPromotion.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD)).thenReturn(null);
+
+    Assert.assertTrue(myBuildProblemUtils.isNew(myFailedBuildInfo, createBuildProblem(1, myBuildPromotion)));
+  }
+
+  private static BuildProblem createBuildProblem(int id, BuildPromotionEx buildPromotion) {
+    BuildProblem buildProblem = Mockito.mock(BuildProblem.class);
+    when(buildProblem.getId()).thenReturn(id);
+    when(buildProblem.getBuildPromotion()).thenReturn(buildPromotion);
+    return buildProblem;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Collections;
+import jetbrains.buildServer.BaseTestCase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class CompositeTextTest extends BaseTestCase {
+
+  public void TestPartsAreReadAsOneText() {
+    CompositeText text =
+      CompositeText.builder(100).append("test.Name").append(" ").append(null).append("output").build();
+
+    Assert.assertEquals(text.length(), 16);
+    Assert.assertEquals(text.toString(), "test.Name output");
+    Assert.assertEquals(text.charAt(0), 't');
+    Assert.assertEquals(text.charAt(9), ' ');
+    Assert.assertEquals(text.charAt(10), 'o');
+    Assert.assertEquals(text.charAt(15), 't');
+    Assert.assertEquals(text.subSequence(5, 11).toString(), "Name o");
+  }
+
+  public void TestBudgetCutsTheText() {
+    String hugeOutput = String.join("", Collections.nCopies(10_000, "line\n"));
+    CompositeText.Builder builder = CompositeText.builder(20).append("test.Name").append(" ").append(hugeOutput);
+
+    Assert.assertTrue(builder.isFull());
+    CompositeText text = builder.append("ignored").build();
+    Assert.assertEquals(text.toString(), "test.Name line\nline\n");
+    Assert.assertEquals(text.getPartsCount(), 3);
+    Assert.assertSame(text.getPart(2), hugeOutput);
+  }
+
+  public void TestMatchSpanningParts() {
+    AhoCorasickMatcher matcher = new AhoCorasickMatcher(Collections.singletonList("path/File"));
+    CompositeText text = CompositeText.builder(100).append("at pa").append("th/Fi").append("le.java:1").build();
+
+    Assert.assertTrue(matcher.findMatches(text).get(0));
+    Assert.assertFalse(matcher.findMatches(CompositeText.builder(6).append("at pa").append("th/File").build()).get(0));
+  }
+}
@@ -16,6 +16,7 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -24,6 +25,7 @@ import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SBuildFeatureDescriptor;
 import org.mockito.Mockito;
+import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -39,7 +41,7 @@ public class CustomParametersTest extends BaseTestCase {
   public void getUsersToIgnoreTestNoDescriptor() {
     SBuild sBuildMock = Mockito.mock(SBuild.class);
     Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE)).thenReturn(Collections.emptyList());
-    assertListEquals(CustomParameters.getUsersToIgnore(sBuildMock));
+    assertListEquals(new ArrayList<>(CustomParameters.getUsersToIgnore(sBuildMock)));
   }
 
   public void getUsersToIgnoreTestHasOneInList() {
@@ -51,13 +53,13 @@ public class CustomParametersTest extends BaseTestCase {
     Map<String, String> params = new HashMap<>();
     params.put(Constants.USERS_TO_IGNORE, "username1");
     Mockito.when(sBuildFeatureDescriptor.getParameters()).thenReturn(params);
-    assertListEquals(CustomParameters.getUsersToIgnore(sBuildMock), "username1");
+    assertListEquals(new ArrayList<>(CustomParameters.getUsersToIgnore(sBuildMock)), "username1");
 
     params.put(Constants.USERS_TO_IGNORE, "username2 ");
-    assertListEquals(CustomParameters.getUsersToIgnore(sBuildMock), "username2");
+    assertListEquals(new ArrayList<>(CustomParameters.getUsersToIgnore(sBuildMock)), "username2");
 
     params.put(Constants.USERS_TO_IGNORE, "  username3    ");
-    assertListEquals(CustomParameters.getUsersToIgnore(sBuildMock), "username3");
+    assertListEquals(new ArrayList<>(CustomParameters.getUsersToIgnore(sBuildMock)), "username3");
   }
 
   public void getUsersToIgnoreTestHasTwo() {
@@ -69,6 +71,31 @@ public class CustomParametersTest extends BaseTestCase {
     Map<String, String> params = new HashMap<>();
     params.put(Constants.USERS_TO_IGNORE, "username1\nusername2\nusername3");
     Mockito.when(sBuildFeatureDescriptor.getParameters()).thenReturn(params);
-    assertListEquals(CustomParameters.getUsersToIgnore(sBuildMock), "username1", "username2", "username3");
+    assertListEquals(new ArrayList<>(CustomParameters.getUsersToIgnore(sBuildMock)), "username1", "username2", "username3");
+  }
+
+  public void buildFeatureSettingsAreTakenFromBuild() {
+    SBuild sBuildMock = createBuildWithFeature("username1");
+    assertListEquals(new ArrayList<>(CustomParameters.getUsersToIgnore(sBuildMock)), "username1");
+
+    SBuild changedSettingsBuild = createBuildWithFeature("username2");
+    assertListEquals(new ArrayList<>(CustomParameters.getUsersToIgnore(changedSettingsBuild)), "username2");
+    assertListEquals(new ArrayList<>(CustomParameters.getUsersToIgnore(sBuildMock)), "username1");
+
+    SBuild disabledFeatureBuild = Mockito.mock(SBuild.class);
+    Mockito.when(disabledFeatureBuild.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
+           .thenReturn(Collections.emptyList());
+    Assert.assertFalse(CustomParameters.isBuildFeatureEnabled(disabledFeatureBuild));
+  }
+
+  private static SBuild createBuildWithFeature(String usersToIgnore) {
+    SBuild sBuildMock = Mockito.mock(SBuild.class);
+    SBuildFeatureDescriptor sBuildFeatureDescriptor = Mockito.mock(SBuildFeatureDescriptor.class);
+    Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
+           .thenReturn(Collections.singletonList(sBuildFeatureDescriptor));
+    Map<String, String> params = new HashMap<>();
+    params.put(Constants.USERS_TO_IGNORE, usersToIgnore);
+    Mockito.when(sBuildFeatureDescriptor.getParameters()).thenReturn(params);
+    return sBuildMock;
   }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.BitSet;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jetbrains.buildServer.BaseTestCase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+
+@Test
+public class FlakyTestDetectorTest extends BaseTestCase {
+
+  public void TestDetectorIsNotAvailable() {
+    Assert.assertFalse(new FlakyTestDetector().isFlaky(2));
+  }
+
+  public void TestFlakyTestsAreFoundInBatchAndCached() throws Exception {
+    final MBeanServer mBeanServer = getPlatformMBeanServer();
+    final ObjectName objectName = new ObjectName("com.jetbrains.teamcity:type=FlakyTestDetector");
+    final EvenTestsDetector detector = new EvenTestsDetector();
+    mBeanServer.registerMBean(detector, objectName);
+    try {
+      FlakyTestDetector flakyTestDetector = new FlakyTestDetector();
+      BitSet expected = new BitSet();
+      expected.set(1);
+      expected.set(3);
+
+      Assert.assertEquals(flakyTestDetector.findFlaky(new long[]{1, 2, 3, 4}), expected);
+      Assert.assertEquals(detector.myBatchCalls, 1);
+
+      Assert.assertTrue(flakyTestDetector.isFlaky(4));
+      Assert.assertFalse(flakyTestDetector.isFlaky(5));
+      Assert.assertEquals(detector.myBatchCalls, 2);
+      Assert.assertEquals(detector.mySingleCalls, 0);
+    } finally {
+      mBeanServer.unregisterMBean(objectName);
+    }
+  }
+
+  public interface EvenTestsDetectorMXBean {
+    boolean isFlaky(long testNameId);
+
+    boolean[] areFlaky(long[] testNameIds);
+  }
+
+  public static class EvenTestsDetector implements EvenTestsDetectorMXBean {
+    private int mySingleCalls;
+    private int myBatchCalls;
+
+    @Override
+    public boolean isFlaky(final long testNameId) {
+      mySingleCalls++;
+      return testNameId % 2 == 0;
+    }
+
+    @Override
+    public boolean[] areFlaky(final long[] testNameIds) {
+      myBatchCalls++;
+      boolean[] result = new boolean[testNameIds.length];
+      for (int i = 0; i < testNameIds.length; i++) {
+        result[i] = testNameIds[i] % 2 == 0;
+      }
+      return result;
+    }
+  }
+}
@@ -1,18 +1,26 @@
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.responsibility.BuildProblemResponsibilityEntry;
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
 import jetbrains.buildServer.responsibility.TestNameResponsibilityEntry;
 import jetbrains.buildServer.responsibility.impl.ResponsibilityFacadeImpl;
+import jetbrains.buildServer.serverSide.BuildServerListenerEventDispatcher;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STest;
 import jetbrains.buildServer.serverSide.STestRun;
+import jetbrains.buildServer.serverSide.audit.AuditLogAction;
 import jetbrains.buildServer.serverSide.audit.AuditLogBuilder;
 import jetbrains.buildServer.serverSide.audit.AuditLogProvider;
+import jetbrains.buildServer.serverSide.audit.ObjectWrapper;
+import jetbrains.buildServer.serverSide.impl.audit.filters.TestId;
 import jetbrains.buildServer.serverSide.impl.problems.BuildProblemImpl;
 import jetbrains.buildServer.users.User;
 import org.assertj.core.api.Assertions;
@@ -21,6 +29,9 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -39,6 +50,7 @@ public class InvestigationsManagerTest extends BaseTestCase {
   private TestNameResponsibilityEntry myResponsibilityEntry;
   private SBuild mySBuild;
   private User myUser;
+  private AuditLogBuilder myAuditLogBuilder;
 
   @BeforeMethod
   @Override
@@ -69,15 +81,19 @@ public class InvestigationsManagerTest extends BaseTestCase {
     final AuditLogProvider auditLogProvider = Mockito.mock(AuditLogProvider.class);
     final ResponsibilityFacadeImpl responsibilityFacade = Mockito.mock(ResponsibilityFacadeImpl.class);
     when(responsibilityFacade.getProject(any())).thenCallRealMethod();
-    final AuditLogBuilder auditLogBuilder = Mockito.mock(AuditLogBuilder.class);
-    when(auditLogProvider.getBuilder()).thenReturn(auditLogBuilder);
+    myAuditLogBuilder = Mockito.mock(AuditLogBuilder.class);
+    when(auditLogProvider.getBuilder()).thenReturn(myAuditLogBuilder);
     when(myResponsibilityEntry.getTimestamp()).thenReturn(new Date(1000000));
     when(myResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.NONE);
     when(mySTestRun.getTest()).thenReturn(mySTest);
     when(mySTest.getAllResponsibilities()).thenReturn(Collections.singletonList(myResponsibilityEntry));
     when(mySTest.getProjectId()).thenReturn("123");
 
-    myInvestigationsManager = new InvestigationsManager(auditLogProvider, responsibilityFacade);
+    myInvestigationsManager = new InvestigationsManager(auditLogProvider,
+                                                        responsibilityFacade,
+                                                        Mockito.mock(ActiveInvestigationsIndex.class),
+                                                        new ProjectHierarchyCache(
+                                                          Mockito.mock(BuildServerListenerEventDispatcher.class)));
   }
 
   public void Test_BuildIsUnderInvestigationInSameProject() {
@@ -173,6 +189,29 @@ public class InvestigationsManagerTest extends BaseTestCase {
     Assertions.assertThat(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, sTest)).isFalse();
   }
 
+  public void Test_TestsUnderInvestigationAreCheckedInBatch() {
+    when(myResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.TAKEN);
+    when(myResponsibilityEntry.getProject()).thenReturn(mySProject.getParentProject());
+    STest sTest = Mockito.mock(STest.class);
+    when(sTest.getAllResponsibilities()).thenReturn(Collections.emptyList());
+
+    BitSet underInvestigation =
+      myInvestigationsManager.checkTestsUnderInvestigation(mySProject, mySBuild, Arrays.asList(sTest, mySTest));
+
+    Assertions.assertThat(underInvestigation.get(0)).isFalse();
+    Assertions.assertThat(underInvestigation.get(1)).isTrue();
+  }
+
+  public void Test_BuildProblemsUnderInvestigationAreCheckedInBatch() {
+    when(myBuildProblemResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.TAKEN);
+    when(myBuildProblemResponsibilityEntry.getProject()).thenReturn(myProject2);
+
+    BitSet underInvestigation = myInvestigationsManager.checkProblemsUnderInvestigation(
+      mySProject, mySBuild, Collections.singletonList(myBuildProblem));
+
+    Assertions.assertThat(underInvestigation.isEmpty()).isTrue();
+  }
+
   public void Test_BuildProblemFindPreviousResponsible_FixedBeforeQueued() {
     when(myBuildProblemResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.FIXED);
     when(myBuildProblemResponsibilityEntry.getResponsibleUser()).thenReturn(myUser);
@@ -214,4 +253,52 @@ public class InvestigationsManagerTest extends BaseTestCase {
 
     Assertions.assertThat(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, mySTest)).isNull();
   }
+
+  public void Test_AuditScanStopsWhenAllTestsResolved() {
+    when(mySTest.getTestNameId()).thenReturn(42L);
+    AuditLogAction action = Mockito.mock(AuditLogAction.class);
+    ObjectWrapper userWrapper = Mockito.mock(ObjectWrapper.class);
+    when(userWrapper.getObject()).thenReturn(myUser);
+    when(action.getObjects()).thenReturn(Collections.singletonList(userWrapper));
+    when(action.getObjectId()).thenReturn(TestId.createOn(42L, "Project ID").asString());
+    when(action.getCreated()).thenReturn(new Date(1000000));
+    List<AuditLogAction> fullPage = Collections.nCopies(500, action);
+    when(myAuditLogBuilder.getLogActions(anyInt())).thenReturn(fullPage);
+
+    Assertions.assertThat(myInvestigationsManager.findInAudit(Collections.singletonList(mySTestRun), mySProject))
+              .containsEntry(42L, myUser);
+    verify(myAuditLogBuilder, times(1)).getLogActions(anyInt());
+  }
+
+  public void Test_AuditScanReadsWholeMillisecondBeforeMovingBack() {
+    when(mySTest.getTestNameId()).thenReturn(42L);
+    STestRun sTestRun2 = Mockito.mock(STestRun.class);
+    STest sTest2 = Mockito.mock(STest.class);
+    when(sTestRun2.getTest()).thenReturn(sTest2);
+    when(sTest2.getTestNameId()).thenReturn(43L);
+    User user2 = Mockito.mock(User.class);
+    Date tiedDate = new Date(1000000);
+    AuditLogAction action = createAuditAction(42L, myUser, tiedDate);
+    AuditLogAction action2 = createAuditAction(43L, user2, tiedDate);
+    List<AuditLogAction> fullPage = Collections.nCopies(500, action);
+    List<AuditLogAction> tiedActions = new ArrayList<>(Collections.nCopies(1000, action));
+    tiedActions.add(action2);
+    when(myAuditLogBuilder.getLogActions(anyInt())).thenReturn(fullPage, fullPage, tiedActions);
+
+    Assertions.assertThat(myInvestigationsManager.findInAudit(Arrays.asList(mySTestRun, sTestRun2), mySProject))
+              .containsEntry(42L, myUser)
+              .containsEntry(43L, user2);
+    verify(myAuditLogBuilder, times(3)).getLogActions(anyInt());
+    verify(myAuditLogBuilder, times(1)).setFromDate(tiedDate);
+  }
+
+  private static AuditLogAction createAuditAction(final long testNameId, final User user, final Date created) {
+    AuditLogAction action = Mockito.mock(AuditLogAction.class);
+    ObjectWrapper userWrapper = Mockito.mock(ObjectWrapper.class);
+    when(userWrapper.getObject()).thenReturn(user);
+    when(action.getObjects()).thenReturn(Collections.singletonList(userWrapper));
+    when(action.getObjectId()).thenReturn(TestId.createOn(testNameId, "Project ID").asString());
+    when(action.getCreated()).thenReturn(created);
+    return action;
+  }
 }
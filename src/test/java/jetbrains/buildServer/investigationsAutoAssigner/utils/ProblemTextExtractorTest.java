@@ -0,0 +1,130 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.BuildProblemData;
+import jetbrains.buildServer.BuildProblemTypes;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.serverSide.buildLog.BuildLog;
+import jetbrains.buildServer.serverSide.buildLog.LogMessage;
+import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Test
+public class ProblemTextExtractorTest extends BaseTestCase {
+  private ProblemTextExtractor myProblemTextExtractor;
+  private SBuild mySBuild;
+  private BuildLog myBuildLog;
+  private BuildProblem myCompileProblem;
+  private BuildProblem myTestProblem;
+
+  @BeforeMethod
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myProblemTextExtractor = new ProblemTextExtractor();
+    mySBuild = Mockito.mock(SBuild.class);
+    myBuildLog = Mockito.mock(BuildLog.class);
+    when(mySBuild.getBuildId()).thenReturn(1L);
+    when(mySBuild.getBuildLog()).thenReturn(myBuildLog);
+    when(myBuildLog.getMessagesIterator())
+      .thenAnswer(invocation -> createMessages("Step 1/2: Compile (Gradle)", "Foo.java is broken",
+                                               "Process exited with code 1",
+                                               "Step 2/2: Test (Gradle)", "BarTest failed",
+                                               "Process exited with code 1").iterator());
+
+    myCompileProblem = createExitCodeProblem("compile", "Process exited with code 1 (Step: Compile (Gradle))");
+    myTestProblem = createExitCodeProblem("test", "Process exited with code 1 (Step: Test (Gradle))");
+    List<BuildProblemData> failureReasons = Arrays.asList(myTestProblem.getBuildProblemData(),
+                                                          myCompileProblem.getBuildProblemData());
+    when(mySBuild.getFailureReasons()).thenReturn(failureReasons);
+  }
+
+  public void TestLogIsReadOnceForAllExitCodeProblems() {
+    ProblemText compileText = myProblemTextExtractor.getBuildProblemText(myCompileProblem, mySBuild);
+    ProblemText testText = myProblemTextExtractor.getBuildProblemText(myTestProblem, mySBuild);
+
+    Assert.assertEquals(compileText.getTier(1).toString(), "Step 1/2: Compile (Gradle) Foo.java is broken ");
+    Assert.assertEquals(testText.getTier(1).toString(),
+                        "Step 1/2: Compile (Gradle) Foo.java is broken Step 2/2: Test (Gradle) BarTest failed ");
+    verify(myBuildLog, times(1)).getMessagesIterator();
+  }
+
+  public void TestExitMessagesWithoutStepsAreGivenInOrder() {
+    when(myBuildLog.getMessagesIterator())
+      .thenAnswer(invocation -> createMessages("Foo.java is broken", "Process exited with code 1",
+                                               "BarTest failed", "Process exited with code 1").iterator());
+    BuildProblem firstProblem = createExitCodeProblem("first", "Process exited with code 1");
+    BuildProblem secondProblem = createExitCodeProblem("second", "Process exited with code 1");
+    when(mySBuild.getFailureReasons()).thenReturn(Arrays.asList(firstProblem.getBuildProblemData(),
+                                                                secondProblem.getBuildProblemData()));
+
+    ProblemText secondText = myProblemTextExtractor.getBuildProblemText(secondProblem, mySBuild);
+    ProblemText firstText = myProblemTextExtractor.getBuildProblemText(firstProblem, mySBuild);
+
+    Assert.assertEquals(firstText.getTier(1).toString(), "Foo.java is broken ");
+    Assert.assertEquals(secondText.getTier(1).toString(), "Foo.java is broken BarTest failed ");
+  }
+
+  public void TestLogIsNotReadAgainForProblemUnknownAtReading() {
+    when(mySBuild.getFailureReasons()).thenReturn(Arrays.asList(myCompileProblem.getBuildProblemData()));
+
+    ProblemText compileText = myProblemTextExtractor.getBuildProblemText(myCompileProblem, mySBuild);
+    Assert.assertEquals(compileText.getTier(1).toString(), "Step 1/2: Compile (Gradle) Foo.java is broken ");
+
+    ProblemText testText = myProblemTextExtractor.getBuildProblemText(myTestProblem, mySBuild);
+    Assert.assertEquals(testText.getTier(1).toString(), "Step 1/2: Compile (Gradle) Foo.java is broken ");
+    verify(myBuildLog, times(1)).getMessagesIterator();
+  }
+
+  public void TestLogIsReadAgainAfterBuildIsForgotten() {
+    myProblemTextExtractor.getBuildProblemText(myCompileProblem, mySBuild).getTier(1);
+    myProblemTextExtractor.forgetBuild(mySBuild.getBuildId());
+    myProblemTextExtractor.getBuildProblemText(myCompileProblem, mySBuild).getTier(1);
+
+    verify(myBuildLog, times(2)).getMessagesIterator();
+  }
+
+  private static BuildProblem createExitCodeProblem(String identity, String description) {
+    BuildProblem buildProblem = Mockito.mock(BuildProblem.class);
+    BuildProblemData buildProblemData = Mockito.mock(BuildProblemData.class);
+    when(buildProblem.getBuildProblemData()).thenReturn(buildProblemData);
+    when(buildProblem.getBuildProblemDescription()).thenReturn(description);
+    when(buildProblemData.getType()).thenReturn(BuildProblemTypes.TC_EXIT_CODE_TYPE);
+    when(buildProblemData.getIdentity()).thenReturn(identity);
+    when(buildProblemData.getDescription()).thenReturn(description);
+    return buildProblem;
+  }
+
+  private static List<LogMessage> createMessages(String... texts) {
+    return Arrays.stream(texts).map(text -> {
+      LogMessage message = Mockito.mock(LogMessage.class);
+      when(message.getText()).thenReturn(text);
+      return message;
+    }).collect(Collectors.toList());
+  }
+}
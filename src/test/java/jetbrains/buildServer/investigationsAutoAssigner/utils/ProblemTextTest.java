@@ -0,0 +1,58 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import jetbrains.buildServer.BaseTestCase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class ProblemTextTest extends BaseTestCase {
+
+  public void TestTiersAreComputedOnDemandOnce() {
+    final int[] computations = {0, 0};
+    ProblemText problemText =
+      new ProblemText(Arrays.asList(ProblemText.TierKind.NAME, ProblemText.TierKind.FULL_TEXT),
+                      Arrays.asList(() -> {
+                        computations[0]++;
+                        return "name";
+                      }, () -> {
+                        computations[1]++;
+                        return "text";
+                      }));
+
+    Assert.assertEquals(problemText.getTiersCount(), 2);
+    Assert.assertEquals(problemText.getTier(0).toString(), "name");
+    Assert.assertEquals(problemText.getTier(0).toString(), "name");
+    Assert.assertEquals(computations[0], 1);
+    Assert.assertEquals(computations[1], 0);
+    Assert.assertEquals(problemText.getTierKind(1), ProblemText.TierKind.FULL_TEXT);
+    Assert.assertEquals(problemText.getTier(1).toString(), "text");
+    Assert.assertEquals(computations[1], 1);
+  }
+
+  public void TestFirstLinesEnd() {
+    String text = "line1\nline2\nline3";
+
+    Assert.assertEquals(ProblemTextExtractor.findLinesEnd(text, text.length(), 0), 0);
+    Assert.assertEquals(ProblemTextExtractor.findLinesEnd(text, text.length(), 1), 6);
+    Assert.assertEquals(ProblemTextExtractor.findLinesEnd(text, text.length(), 2), 12);
+    Assert.assertEquals(ProblemTextExtractor.findLinesEnd(text, text.length(), 3), text.length());
+    Assert.assertEquals(ProblemTextExtractor.findLinesEnd(text, 8, 2), 8);
+  }
+}
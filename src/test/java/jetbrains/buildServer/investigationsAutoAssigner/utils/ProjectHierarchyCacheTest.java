@@ -0,0 +1,84 @@
+/*
+ * Copyright 2000-2019 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.serverSide.BuildServerListener;
+import jetbrains.buildServer.serverSide.BuildServerListenerEventDispatcher;
+import jetbrains.buildServer.serverSide.SProject;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Test
+public class ProjectHierarchyCacheTest extends BaseTestCase {
+  private ProjectHierarchyCache myProjectHierarchyCache;
+  private BuildServerListener myListener;
+  private SProject myProject;
+  private SProject myParentProject;
+
+  @BeforeMethod
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    BuildServerListenerEventDispatcher eventDispatcher = Mockito.mock(BuildServerListenerEventDispatcher.class);
+    myProjectHierarchyCache = new ProjectHierarchyCache(eventDispatcher);
+    ArgumentCaptor<BuildServerListener> listener = ArgumentCaptor.forClass(BuildServerListener.class);
+    verify(eventDispatcher).addListener(listener.capture());
+    myListener = listener.getValue();
+
+    myProject = Mockito.mock(SProject.class);
+    myParentProject = Mockito.mock(SProject.class);
+    when(myProject.getProjectId()).thenReturn("Project ID");
+    when(myProject.getParentProject()).thenReturn(myParentProject);
+    when(myParentProject.getProjectId()).thenReturn("Parent Project ID");
+  }
+
+  public void TestHierarchyIsCollectedOnce() {
+    Set<String> hierarchyIds = myProjectHierarchyCache.getHierarchyIds(myProject);
+
+    Assert.assertEquals(hierarchyIds, new HashSet<>(Arrays.asList("Project ID", "Parent Project ID")));
+    Assert.assertSame(myProjectHierarchyCache.getHierarchyIds(myProject), hierarchyIds);
+  }
+
+  public void TestHierarchyIsCollectedAgainAfterProjectMoved() {
+    myProjectHierarchyCache.getHierarchyIds(myProject);
+    SProject newParentProject = Mockito.mock(SProject.class);
+    when(newParentProject.getProjectId()).thenReturn("New Parent Project ID");
+    when(myProject.getParentProject()).thenReturn(newParentProject);
+
+    myListener.projectMoved(myProject, myParentProject);
+
+    Assert.assertEquals(myProjectHierarchyCache.getHierarchyIds(myProject),
+                        new HashSet<>(Arrays.asList("Project ID", "New Parent Project ID")));
+  }
+
+  public void TestRootProject() {
+    when(myProject.getParentProject()).thenReturn(null);
+
+    Assert.assertEquals(myProjectHierarchyCache.getHierarchyIds(myProject), Collections.singleton("Project ID"));
+  }
+}